@@ -0,0 +1,144 @@
+package org.evla.hbase;
+
+import org.apache.hadoop.hbase.ClusterMetrics;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shared source of ClusterMetrics, one per cluster connection. Metrics younger than the staleness budget
+ * are served from memory, concurrent requests for the same options wait for a single in-flight RPC,
+ * and callers may request only the options they need.
+ */
+public class ClusterMetricsProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterMetricsProvider.class);
+    private static final Map<Connection, ClusterMetricsProvider> PROVIDERS = new ConcurrentHashMap<>();
+    private static final EnumSet<ClusterMetrics.Option> ALL_OPTIONS = EnumSet.allOf(ClusterMetrics.Option.class);
+
+    private static volatile long defaultStaleness = 3_000;
+
+    private final Connection connection;
+    private final Map<EnumSet<ClusterMetrics.Option>, Entry> entries = new ConcurrentHashMap<>();
+
+    private ClusterMetricsProvider(Connection connection) {
+        this.connection = connection;
+    }
+
+    public static void configure(HBaseToolsSettings settings) {
+        defaultStaleness = settings.getCommonSettings().getClusterMetricsStaleness();
+    }
+
+    public static ClusterMetricsProvider getInstance(Admin admin) {
+        return getInstance(admin.getConnection());
+    }
+
+    public static ClusterMetricsProvider getInstance(Connection connection) {
+        return PROVIDERS.computeIfAbsent(connection, ClusterMetricsProvider::new);
+    }
+
+    public ClusterMetrics getClusterMetrics() throws IOException {
+        return getClusterMetrics(ALL_OPTIONS, defaultStaleness);
+    }
+
+    public ClusterMetrics getClusterMetrics(EnumSet<ClusterMetrics.Option> options) throws IOException {
+        return getClusterMetrics(options, defaultStaleness);
+    }
+
+    public ClusterMetrics getClusterMetrics(EnumSet<ClusterMetrics.Option> options, long maxStaleness) throws IOException {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<EnumSet<ClusterMetrics.Option>, Entry> e : entries.entrySet()) {
+            // metrics fetched with wider options also answer narrower requests
+            if (e.getKey().containsAll(options)) {
+                ClusterMetrics fresh = e.getValue().getIfFresh(now, maxStaleness);
+                if (fresh != null) {
+                    return fresh;
+                }
+            }
+        }
+        return entries.computeIfAbsent(EnumSet.copyOf(options), Entry::new).get(maxStaleness);
+    }
+
+    public Collection<ServerName> getServers() throws IOException {
+        List<ServerName> servers = getClusterMetrics(EnumSet.of(ClusterMetrics.Option.SERVERS_NAME)).getServersName();
+        if (servers == null || servers.isEmpty()) {
+            // masters before 2.3 do not support SERVERS_NAME
+            return getClusterMetrics(EnumSet.of(ClusterMetrics.Option.LIVE_SERVERS)).getLiveServerMetrics().keySet();
+        }
+        return servers;
+    }
+
+    private final class Entry {
+        private final EnumSet<ClusterMetrics.Option> options;
+        private volatile ClusterMetrics metrics;
+        private volatile long fetchedAt;
+        private CompletableFuture<ClusterMetrics> inFlight;
+
+        private Entry(EnumSet<ClusterMetrics.Option> options) {
+            this.options = options;
+        }
+
+        private ClusterMetrics getIfFresh(long now, long maxStaleness) {
+            ClusterMetrics current = metrics;
+            return current != null && now - fetchedAt <= maxStaleness ? current : null;
+        }
+
+        private ClusterMetrics get(long maxStaleness) throws IOException {
+            CompletableFuture<ClusterMetrics> request;
+            boolean leader = false;
+            synchronized (this) {
+                ClusterMetrics fresh = getIfFresh(System.currentTimeMillis(), maxStaleness);
+                if (fresh != null) {
+                    return fresh;
+                }
+                if (inFlight == null) {
+                    inFlight = new CompletableFuture<>();
+                    leader = true;
+                }
+                request = inFlight;
+            }
+            if (leader) {
+                fetch(request);
+            }
+            try {
+                return request.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        private void fetch(CompletableFuture<ClusterMetrics> request) {
+            // admin of the caller may be closed after the call, so the provider uses its own one
+            try (Admin admin = connection.getAdmin()) {
+                LOGGER.debug("Fetch cluster metrics with options {}", options);
+                ClusterMetrics fetched = admin.getClusterMetrics(options);
+                synchronized (this) {
+                    metrics = fetched;
+                    fetchedAt = System.currentTimeMillis();
+                    inFlight = null;
+                }
+                request.complete(fetched);
+            } catch (Throwable e) {
+                synchronized (this) {
+                    inFlight = null;
+                }
+                request.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.evla.hbase;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.hbase.ServerName;
 import org.evla.hbase.rstask.RSTaskController;
 import org.slf4j.Logger;
@@ -36,7 +35,7 @@ public abstract class ClusterTaskController<T> {
         }));
         ExecutorService clusterController = null;
         try {
-            clusterController = Executors.newFixedThreadPool(controllers.size(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("controller-%d").build());
+            clusterController = Executors.newFixedThreadPool(controllers.size(), ToolsThreads.newThreadFactory("controller-%d", true));
             clusterController.invokeAll(actions);
         } catch (InterruptedException e) {
             LOGGER.error(e.getMessage(), e);
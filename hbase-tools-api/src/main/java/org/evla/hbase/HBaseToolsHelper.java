@@ -90,6 +90,6 @@ public class HBaseToolsHelper {
     }
 
     public static Set<ServerName> findServerNames(Admin admin, String name) throws IOException {
-        return findServerNames(admin.getClusterStatus().getServers(), name);
+        return findServerNames(ClusterMetricsProvider.getInstance(admin).getServers(), name);
     }
 }
@@ -0,0 +1,54 @@
+package org.evla.hbase;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories of pools running per-region and per-server tasks. Such tasks spend almost all their time
+ * blocked in sleeps and admin RPCs, so on JDK 21+ they can be run on virtual threads when enabled by config.
+ * Pools keep their sizes, only the threads become cheap. On older JDKs platform threads are used.
+ */
+public final class ToolsThreads {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ToolsThreads.class);
+
+    private static volatile ThreadFactory virtualThreadFactory = null;
+
+    private ToolsThreads() {
+    }
+
+    public static void configure(HBaseToolsSettings settings) {
+        if (!settings.getCommonSettings().isVirtualThreadsEnable()) {
+            virtualThreadFactory = null;
+            return;
+        }
+        try {
+            // Thread.ofVirtual().factory(), called reflectively to keep Java 8 compatibility
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            virtualThreadFactory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            LOGGER.info("Virtual threads are used for region and server tasks");
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            virtualThreadFactory = null;
+            LOGGER.warn("Virtual threads are not supported by JVM {}, platform threads are used", System.getProperty("java.version"));
+        }
+    }
+
+    public static boolean isVirtual() {
+        return virtualThreadFactory != null;
+    }
+
+    /**
+     * @param nameFormat thread name format, see {@link ThreadFactoryBuilder#setNameFormat(String)}
+     * @param daemon     ignored for virtual threads, they are always daemon
+     */
+    public static ThreadFactory newThreadFactory(String nameFormat, boolean daemon) {
+        ThreadFactory virtual = virtualThreadFactory;
+        if (virtual != null) {
+            return new ThreadFactoryBuilder().setThreadFactory(virtual).setNameFormat(nameFormat).build();
+        }
+        return new ThreadFactoryBuilder().setDaemon(daemon).setNameFormat(nameFormat).build();
+    }
+}
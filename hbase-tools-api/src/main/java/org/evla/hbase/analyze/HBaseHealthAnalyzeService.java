@@ -4,6 +4,7 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.Pair;
 import org.evla.hbase.configuration.HBaseToolsSettings;
 import org.slf4j.Logger;
@@ -69,7 +70,7 @@ public class HBaseHealthAnalyzeService {
 
     private Collection<ServerName> getServers() {
         try {
-            return admin.getClusterMetrics().getServersName();
+            return ClusterMetricsProvider.getInstance(admin).getServers();
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
         }
@@ -131,7 +132,7 @@ public class HBaseHealthAnalyzeService {
         LOGGER.info("Update live-servers list");
         servers = getServers();
         LOGGER.info("Read actual meta");
-        holder.getAllRegions(servers, admin.getConnection());
+        holder.refresh(admin.getConnection());
     }
 
     private boolean mutateHealthTable(TableName tableName) {
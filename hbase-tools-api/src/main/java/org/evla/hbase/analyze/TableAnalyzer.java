@@ -3,6 +3,7 @@ package org.evla.hbase.analyze;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.RegionInfo;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,7 +52,7 @@ public class TableAnalyzer {
     public void run(TableName tableName) {
         try {
             LOGGER.info("Start analyze for {}", tableName);
-            ClusterMetrics metrics = admin.getClusterMetrics();
+            ClusterMetrics metrics = ClusterMetricsProvider.getInstance(admin).getClusterMetrics();
             Map<String, RegionMetrics> tableLoads = getTableLoad(metrics, tableName);
             LOGGER.info("There are {} regions in table (by Region Metrics)", tableLoads.size());
             StringJoiner sj = new StringJoiner("\n");
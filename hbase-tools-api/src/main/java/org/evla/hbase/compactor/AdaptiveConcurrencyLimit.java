@@ -0,0 +1,138 @@
+package org.evla.hbase.compactor;
+
+import org.apache.hadoop.hbase.ServerName;
+import org.evla.hbase.configuration.CompactorSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Number of compactions allowed on a RegionServer at the same time. In adaptive mode the limit follows AIMD:
+ * it grows by one per increase period while all slots are used and the server is healthy, and is halved when
+ * queues, request latency or compaction speed show that the server is congested.
+ * Without adaptive mode the limit is compactor.parallel.compactions.
+ */
+class AdaptiveConcurrencyLimit {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveConcurrencyLimit.class);
+    private static final double EWMA_ALPHA = 0.3;
+    private static final double SLOWDOWN_FACTOR = 2.0;
+
+    private final ServerName sn;
+    private final CompactorSettings settings;
+    private final boolean adaptive;
+    private final int min;
+    private final int max;
+
+    private int limit;
+    private int running = 0;
+    private long lastChange = System.currentTimeMillis();
+
+    private double millisPerMb = -1;
+    private double bestMillisPerMb = -1;
+
+    AdaptiveConcurrencyLimit(ServerName sn, CompactorSettings settings) {
+        this.sn = sn;
+        this.settings = settings;
+        this.adaptive = settings.isAdaptiveEnable();
+        if (adaptive) {
+            this.min = Math.max(1, settings.getAdaptiveMinCompactions());
+            this.max = Math.max(min, settings.getAdaptiveMaxCompactions());
+            this.limit = Math.max(min, Math.min(max, settings.getParallelCompaction()));
+        } else {
+            this.min = settings.getParallelCompaction();
+            this.max = min;
+            this.limit = min;
+        }
+    }
+
+    synchronized boolean tryAcquire() {
+        if (running < limit) {
+            running++;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void acquire() throws InterruptedException {
+        while (running >= limit) {
+            wait();
+        }
+        running++;
+    }
+
+    synchronized void release() {
+        running--;
+        notifyAll();
+    }
+
+    /**
+     * Feeds the compaction speed signal.
+     */
+    synchronized void onCompactionDone(long durationMillis, int sizeMb) {
+        if (!adaptive || sizeMb <= 0) {
+            return;
+        }
+        double current = (double) durationMillis / sizeMb;
+        millisPerMb = millisPerMb < 0 ? current : EWMA_ALPHA * current + (1 - EWMA_ALPHA) * millisPerMb;
+        if (bestMillisPerMb < 0 || millisPerMb < bestMillisPerMb) {
+            bestMillisPerMb = millisPerMb;
+        }
+    }
+
+    /**
+     * Called on every refresh of the RegionServer load signal.
+     */
+    synchronized void adjust(int compactionQueue, int flushQueue, double latency99th) {
+        if (!adaptive) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String reason = congestionReason(compactionQueue, flushQueue, latency99th);
+        if (reason != null) {
+            if (limit > min) {
+                int previous = limit;
+                limit = Math.max(min, limit / 2);
+                lastChange = now;
+                LOGGER.info("[{}] Decrease compaction concurrency {} -> {}: {}", sn, previous, limit, reason);
+            }
+        } else if (running >= limit && limit < max && now - lastChange >= settings.getAdaptiveIncreasePeriod()) {
+            limit++;
+            lastChange = now;
+            notifyAll();
+            LOGGER.info("[{}] Increase compaction concurrency to {}", sn, limit);
+        }
+    }
+
+    private String congestionReason(int compactionQueue, int flushQueue, double latency99th) {
+        if (compactionQueue > settings.getMaxCompactionsBorder()) {
+            return "compaction queue " + compactionQueue;
+        }
+        if (flushQueue > settings.getMaxFlushesBorder()) {
+            return "flush queue " + flushQueue;
+        }
+        if (settings.getAdaptiveLatencyTarget() > 0 && latency99th > settings.getAdaptiveLatencyTarget()) {
+            return String.format("request latency p99 %.1f ms", latency99th);
+        }
+        if (bestMillisPerMb > 0 && millisPerMb > SLOWDOWN_FACTOR * bestMillisPerMb) {
+            // reset the baseline, so one slow period halves the limit only once
+            bestMillisPerMb = millisPerMb;
+            return String.format("compaction speed dropped to %.1f ms/MB", millisPerMb);
+        }
+        return null;
+    }
+
+    boolean isAdaptive() {
+        return adaptive;
+    }
+
+    int getMax() {
+        return max;
+    }
+
+    synchronized int getLimit() {
+        return limit;
+    }
+
+    synchronized int getRunning() {
+        return running;
+    }
+}
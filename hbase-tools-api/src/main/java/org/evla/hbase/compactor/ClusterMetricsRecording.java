@@ -0,0 +1,214 @@
+package org.evla.hbase.compactor;
+
+import org.apache.hadoop.hbase.ClusterMetrics;
+import org.apache.hadoop.hbase.RegionMetrics;
+import org.apache.hadoop.hbase.ServerMetrics;
+import org.apache.hadoop.hbase.Size;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.evla.hbase.ClusterMetricsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * File with a sequence of region metrics snapshots of the cluster, used by {@link CompactionSimulator}.
+ * Every snapshot keeps only the region metrics used by the compaction weight models.
+ */
+public class ClusterMetricsRecording {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterMetricsRecording.class);
+    private static final int MAGIC = 0x434d5243;
+    private static final int FORMAT_VERSION = 1;
+
+    private ClusterMetricsRecording() {
+    }
+
+    /**
+     * Appends {@code count} snapshots taken every {@code intervalMillis} to the file.
+     */
+    public static void record(Admin admin, Path file, long intervalMillis, int count) throws IOException, InterruptedException {
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), true)))) {
+            if (!exists) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+            }
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    Thread.sleep(intervalMillis);
+                }
+                ClusterMetrics metrics = ClusterMetricsProvider.getInstance(admin).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.LIVE_SERVERS), 0);
+                Snapshot snapshot = Snapshot.of(System.currentTimeMillis(), metrics);
+                snapshot.write(out);
+                out.flush();
+                LOGGER.info("Recorded snapshot {} of {} with {} regions on {} servers", i + 1, count, snapshot.getRegionCount(), snapshot.servers.size());
+            }
+        }
+    }
+
+    public static List<Snapshot> read(Path file) throws IOException {
+        List<Snapshot> snapshots = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported metrics recording format: " + file);
+            }
+            while (true) {
+                long time;
+                try {
+                    time = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                snapshots.add(Snapshot.read(time, in));
+            }
+        }
+        snapshots.sort(Comparator.comparingLong(Snapshot::getTime));
+        return snapshots;
+    }
+
+    public static final class Snapshot {
+        private final long time;
+        private final Map<String, List<RegionSample>> servers = new TreeMap<>();
+
+        private Snapshot(long time) {
+            this.time = time;
+        }
+
+        private static Snapshot of(long time, ClusterMetrics metrics) {
+            Snapshot snapshot = new Snapshot(time);
+            metrics.getLiveServerMetrics().forEach((sn, sm) -> snapshot.servers.put(sn.getAddress().toString(), samples(sm)));
+            return snapshot;
+        }
+
+        private static List<RegionSample> samples(ServerMetrics sm) {
+            List<RegionSample> samples = new ArrayList<>(sm.getRegionMetrics().size());
+            for (RegionMetrics rm : sm.getRegionMetrics().values()) {
+                samples.add(new RegionSample(RegionInfo.encodeRegionName(rm.getRegionName()), RegionInfo.getTable(rm.getRegionName()).getNameAsString(),
+                        rm.getDataLocality(), rm.getStoreFileCount(), (int) rm.getStoreFileSize().get(Size.Unit.MEGABYTE),
+                        (int) rm.getMemStoreSize().get(Size.Unit.MEGABYTE), rm.getReadRequestCount(), rm.getWriteRequestCount(),
+                        rm.getStoreRefCount(), rm.getLastMajorCompactionTimestamp()));
+            }
+            return samples;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeLong(time);
+            out.writeInt(servers.size());
+            for (Map.Entry<String, List<RegionSample>> e : servers.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().size());
+                for (RegionSample r : e.getValue()) {
+                    out.writeUTF(r.encodedName);
+                    out.writeUTF(r.table);
+                    out.writeFloat(r.locality);
+                    out.writeInt(r.storeFiles);
+                    out.writeInt(r.sizeMb);
+                    out.writeInt(r.memStoreMb);
+                    out.writeLong(r.readRequests);
+                    out.writeLong(r.writeRequests);
+                    out.writeInt(r.storeRefCount);
+                    out.writeLong(r.lastMajorCompaction);
+                }
+            }
+        }
+
+        private static Snapshot read(long time, DataInputStream in) throws IOException {
+            Snapshot snapshot = new Snapshot(time);
+            int serverCount = in.readInt();
+            for (int i = 0; i < serverCount; i++) {
+                String server = in.readUTF();
+                int regionCount = in.readInt();
+                List<RegionSample> samples = new ArrayList<>(regionCount);
+                for (int j = 0; j < regionCount; j++) {
+                    samples.add(new RegionSample(in.readUTF(), in.readUTF(), in.readFloat(), in.readInt(), in.readInt(),
+                            in.readInt(), in.readLong(), in.readLong(), in.readInt(), in.readLong()));
+                }
+                snapshot.servers.put(server, samples);
+            }
+            return snapshot;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public Map<String, List<RegionSample>> getServers() {
+            return servers;
+        }
+
+        public int getRegionCount() {
+            return servers.values().stream().mapToInt(List::size).sum();
+        }
+    }
+
+    public static final class RegionSample {
+        private final String encodedName;
+        private final String table;
+        private final float locality;
+        private final int storeFiles;
+        private final int sizeMb;
+        private final int memStoreMb;
+        private final long readRequests;
+        private final long writeRequests;
+        private final int storeRefCount;
+        private final long lastMajorCompaction;
+
+        RegionSample(String encodedName, String table, float locality, int storeFiles, int sizeMb, int memStoreMb,
+                     long readRequests, long writeRequests, int storeRefCount, long lastMajorCompaction) {
+            this.encodedName = encodedName;
+            this.table = table;
+            this.locality = locality;
+            this.storeFiles = storeFiles;
+            this.sizeMb = sizeMb;
+            this.memStoreMb = memStoreMb;
+            this.readRequests = readRequests;
+            this.writeRequests = writeRequests;
+            this.storeRefCount = storeRefCount;
+            this.lastMajorCompaction = lastMajorCompaction;
+        }
+
+        public String getEncodedName() {
+            return encodedName;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public float getLocality() {
+            return locality;
+        }
+
+        public int getStoreFiles() {
+            return storeFiles;
+        }
+
+        public int getSizeMb() {
+            return sizeMb;
+        }
+
+        public int getMemStoreMb() {
+            return memStoreMb;
+        }
+
+        public long getReadRequests() {
+            return readRequests;
+        }
+
+        public long getWriteRequests() {
+            return writeRequests;
+        }
+
+        public int getStoreRefCount() {
+            return storeRefCount;
+        }
+
+        public long getLastMajorCompaction() {
+            return lastMajorCompaction;
+        }
+    }
+}
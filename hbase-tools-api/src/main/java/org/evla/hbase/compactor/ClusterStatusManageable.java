@@ -1,7 +1,7 @@
 package org.evla.hbase.compactor;
 
-import org.apache.hadoop.hbase.ClusterStatus;
+import org.apache.hadoop.hbase.ClusterMetrics;
 
 public interface ClusterStatusManageable {
-    ClusterStatus getClusterStatus();
+    ClusterMetrics getClusterMetrics();
 }
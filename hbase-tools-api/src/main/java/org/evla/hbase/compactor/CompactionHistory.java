@@ -0,0 +1,227 @@
+package org.evla.hbase.compactor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Major compaction history of all regions of the cluster: last compaction time, duration, size and store file
+ * count before and after. It is used to skip recently compacted regions, to back off regions whose compactions
+ * fail and to predict compaction durations. The history is stored in a local file, written to a temporary file
+ * and atomically renamed once a minute when changed, and loaded back on start.
+ */
+public class CompactionHistory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactionHistory.class);
+    private static final int MAGIC = 0x43484953;
+    private static final int FORMAT_VERSION = 1;
+    private static final long SAVE_PERIOD = TimeUnit.MINUTES.toMillis(1);
+    private static final long FAILURE_BACKOFF = TimeUnit.MINUTES.toMillis(30);
+
+    private static volatile CompactionHistory instance = new CompactionHistory(null, TimeUnit.DAYS.toMillis(1), TimeUnit.DAYS.toMillis(7));
+
+    private final Path file;
+    private final long dedupPeriod;
+    private final long ttl;
+    private final Map<String, Record> records = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+    private ScheduledExecutorService saver;
+
+    private CompactionHistory(Path file, long dedupPeriod, long ttl) {
+        this.file = file;
+        this.dedupPeriod = dedupPeriod;
+        this.ttl = ttl;
+    }
+
+    public static void configure(HBaseToolsSettings settings) {
+        String fileName = settings.getCompactorSettings().getHistoryFile();
+        CompactionHistory history = new CompactionHistory(StringUtils.isBlank(fileName) ? null : Paths.get(fileName),
+                settings.getCompactorSettings().getHistoryDedupPeriod(), settings.getCompactorSettings().getHistoryTTL());
+        history.load();
+        history.startSaving();
+        CompactionHistory previous = instance;
+        instance = history;
+        previous.close();
+    }
+
+    public static CompactionHistory getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return true when the region was compacted during the dedup period, is being compacted right now
+     * or is backed off after failed compactions
+     */
+    boolean isSkipped(String encodedRegionName, long now) {
+        Record r = records.get(encodedRegionName);
+        if (r == null) {
+            return false;
+        }
+        if (r.running) {
+            // a retry of a failed compaction is running, its backoff may have passed already
+            return true;
+        }
+        return r.failures > 0 ? now < r.nextAttempt : now - r.time < dedupPeriod;
+    }
+
+    void onStarted(String encodedRegionName, int sizeMb, int storeFiles) {
+        records.compute(encodedRegionName, (k, r) -> {
+            Record record = r == null ? new Record() : r;
+            record.time = System.currentTimeMillis();
+            // the duration of the last successful compaction is kept until this one succeeds
+            record.running = true;
+            record.sizeBefore = sizeMb;
+            record.filesBefore = storeFiles;
+            record.sizeAfter = -1;
+            record.filesAfter = -1;
+            return record;
+        });
+        dirty = true;
+    }
+
+    void onCompleted(String encodedRegionName, long duration, boolean success) {
+        records.computeIfPresent(encodedRegionName, (k, r) -> {
+            r.running = false;
+            if (success) {
+                r.duration = duration;
+                r.failures = 0;
+                r.nextAttempt = 0;
+            } else {
+                r.failures++;
+                r.nextAttempt = System.currentTimeMillis() + Math.min(dedupPeriod, FAILURE_BACKOFF << Math.min(10, r.failures - 1));
+            }
+            return r;
+        });
+        dirty = true;
+    }
+
+    /**
+     * Fills size and store file count after a successful compaction from the first region metrics seen after it.
+     */
+    void onMetrics(String encodedRegionName, int sizeMb, int storeFiles) {
+        Record r = records.get(encodedRegionName);
+        if (r != null && !r.running && r.failures == 0 && r.duration >= 0 && r.sizeAfter < 0) {
+            r.sizeAfter = sizeMb;
+            r.filesAfter = storeFiles;
+            dirty = true;
+        }
+    }
+
+    /**
+     * @return duration of the last successful compaction of the region, or -1 when it is unknown
+     */
+    long getLastDuration(String encodedRegionName) {
+        Record r = records.get(encodedRegionName);
+        return r == null ? -1 : r.duration;
+    }
+
+    int size() {
+        return records.size();
+    }
+
+    private void startSaving() {
+        if (file == null) {
+            return;
+        }
+        saver = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("compaction-history").build());
+        saver.scheduleWithFixedDelay(this::save, SAVE_PERIOD, SAVE_PERIOD, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::save, "compaction-history-save"));
+    }
+
+    private void close() {
+        if (saver != null) {
+            saver.shutdownNow();
+            save();
+        }
+    }
+
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        long border = System.currentTimeMillis() - ttl;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported history file format");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String region = in.readUTF();
+                Record r = new Record();
+                r.time = in.readLong();
+                r.duration = in.readLong();
+                r.sizeBefore = in.readInt();
+                r.sizeAfter = in.readInt();
+                r.filesBefore = in.readInt();
+                r.filesAfter = in.readInt();
+                r.failures = in.readInt();
+                r.nextAttempt = in.readLong();
+                if (r.time >= border) {
+                    records.put(region, r);
+                }
+            }
+            LOGGER.info("Loaded compaction history of {} regions from {}", records.size(), file);
+        } catch (IOException e) {
+            LOGGER.warn("Cant read compaction history {}: {}", file, e.getMessage());
+        }
+    }
+
+    private synchronized void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        long border = System.currentTimeMillis() - ttl;
+        records.entrySet().removeIf(e -> e.getValue().time < border);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                Map<String, Record> copy = new HashMap<>(records);
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(copy.size());
+                for (Map.Entry<String, Record> e : copy.entrySet()) {
+                    Record r = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(r.time);
+                    out.writeLong(r.duration);
+                    out.writeInt(r.sizeBefore);
+                    out.writeInt(r.sizeAfter);
+                    out.writeInt(r.filesBefore);
+                    out.writeInt(r.filesAfter);
+                    out.writeInt(r.failures);
+                    out.writeLong(r.nextAttempt);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Compaction history of {} regions stored in {}", records.size(), file);
+        } catch (IOException e) {
+            dirty = true;
+            LOGGER.warn("Cant store compaction history in {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class Record {
+        private volatile long time;
+        // of the last successful compaction, a running or failed one does not reset it
+        private volatile long duration = -1;
+        private volatile int sizeBefore;
+        private volatile int sizeAfter = -1;
+        private volatile int filesBefore;
+        private volatile int filesAfter = -1;
+        private volatile int failures;
+        private volatile long nextAttempt;
+        // not stored: a compaction running when the tool stopped is not running after restart
+        private volatile boolean running;
+    }
+}
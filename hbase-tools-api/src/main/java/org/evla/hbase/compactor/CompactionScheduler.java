@@ -0,0 +1,336 @@
+package org.evla.hbase.compactor;
+
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.evla.hbase.configuration.CompactorSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cluster-wide compaction queue. Every CompactorServer publishes its candidates here, and a single dispatcher
+ * hands them out by global weight to the servers that have a free compaction slot.
+ * <p>
+ * With the cost-aware policy candidates are taken by weight per predicted second of compaction, so many small
+ * regions are not blocked behind a few huge ones. Some slots of every server are reserved for regions smaller than
+ * compactor.large.region.mb, and a candidate waiting longer than compactor.max.wait.millis goes first, so huge
+ * regions still make progress.
+ * <p>
+ * Candidates are kept in indexes ordered by weight, by cost score and by the time they were first queued. The cost
+ * score is calculated when the candidate is offered, so dispatching only walks the indexes.
+ */
+class CompactionScheduler implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactionScheduler.class);
+    private static final long DISPATCH_DELAY = 1_000;
+    private static final String COST_AWARE = "cost-aware";
+    // 50 MB/s, used for the cost of a region before any compaction speed is known
+    private static final double DEFAULT_MILLIS_PER_MB = 20;
+
+    private static final Comparator<CompactionTask> ORDER = Comparator
+            .comparing(CompactionTask::getWeightValue, Comparator.reverseOrder())
+            .thenComparing(t -> t.getInfo().getEncodedName())
+            .thenComparing(CompactionTask::getServerKey);
+    private static final Comparator<Candidate> BY_SCORE = Comparator
+            .comparingDouble((Candidate c) -> c.score).reversed()
+            .thenComparing(c -> c.region)
+            .thenComparing(c -> c.serverKey);
+    private static final Comparator<Candidate> BY_QUEUED = Comparator
+            .comparingLong((Candidate c) -> c.queuedAt)
+            .thenComparing(c -> c.region)
+            .thenComparing(c -> c.serverKey);
+
+    private final ConcurrentSkipListSet<CompactionTask> index = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentSkipListSet<Candidate> byScore = new ConcurrentSkipListSet<>(BY_SCORE);
+    private final ConcurrentSkipListSet<Candidate> byQueued = new ConcurrentSkipListSet<>(BY_QUEUED);
+    private final Map<String, Map<String, Candidate>> queued = new ConcurrentHashMap<>();
+    private final Map<String, CompactorServer> servers = new ConcurrentHashMap<>();
+    private final int clusterParallelism;
+    private final CompactionWindowPlanner planner;
+    private final ScheduledExecutorService dispatcher;
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
+
+    private final boolean costAware;
+    private final int largeRegionMb;
+    private final int smallReservedSlots;
+    private final long maxWait;
+    private final Map<String, Long> firstQueued = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> runningLarge = new ConcurrentHashMap<>();
+
+    CompactionScheduler(CompactorSettings settings) {
+        this.clusterParallelism = settings.getClusterParallelCompaction();
+        this.costAware = COST_AWARE.equalsIgnoreCase(settings.getSchedulingPolicy());
+        this.largeRegionMb = settings.getLargeRegionMb();
+        this.smallReservedSlots = settings.getSmallReservedSlots();
+        this.maxWait = settings.getMaxWait();
+        this.planner = new CompactionWindowPlanner(settings.getCompactionWindows());
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("compaction-dispatcher").build());
+    }
+
+    void start() {
+        dispatcher.scheduleWithFixedDelay(this::dispatch, DISPATCH_DELAY, DISPATCH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    void register(CompactorServer server) {
+        servers.put(server.getServerKey(), server);
+    }
+
+    /**
+     * Replaces all queued candidates of the server with the new ones.
+     */
+    void offer(CompactorServer server, Collection<CompactionTask> tasks) {
+        long now = System.currentTimeMillis();
+        Map<String, Candidate> next = new ConcurrentHashMap<>();
+        for (CompactionTask task : tasks) {
+            String region = task.getInfo().getEncodedName();
+            long queuedAt = firstQueued.computeIfAbsent(region, r -> now);
+            next.put(region, new Candidate(task, costAware ? score(task) : 0, queuedAt));
+        }
+        Map<String, Candidate> previous = queued.put(server.getServerKey(), next);
+        if (previous != null) {
+            previous.forEach((region, candidate) -> {
+                unindex(candidate);
+                if (!next.containsKey(region)) {
+                    firstQueued.remove(region);
+                }
+            });
+        }
+        next.values().forEach(candidate -> {
+            index.add(candidate.task);
+            if (costAware) {
+                byScore.add(candidate);
+                byQueued.add(candidate);
+            }
+        });
+    }
+
+    /**
+     * Runs dispatching right away, used when a compaction slot is released.
+     */
+    void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> {
+                    wakeUpPending.set(false);
+                    dispatch();
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Compaction dispatcher is stopped");
+            }
+        }
+    }
+
+    void dispatch() {
+        try {
+            int running = 0;
+            for (CompactorServer server : servers.values()) {
+                running += server.getRunningCount();
+            }
+            Set<String> busy = new HashSet<>();
+            long now = System.currentTimeMillis();
+            Iterator<CompactionTask> tasks = costAware ? orderByCost(now) : index.iterator();
+            while (tasks.hasNext()) {
+                CompactionTask task = tasks.next();
+                if (clusterParallelism > 0 && running >= clusterParallelism) {
+                    return;
+                }
+                if (busy.size() >= servers.size()) {
+                    return;
+                }
+                String key = task.getServerKey();
+                if (busy.contains(key)) {
+                    continue;
+                }
+                CompactorServer server = servers.get(key);
+                if (server == null) {
+                    remove(task);
+                    continue;
+                }
+                CompactionWindowPlanner.Admission admission = planner.admit(task, now);
+                if (admission == CompactionWindowPlanner.Admission.CLOSED) {
+                    busy.add(key);
+                } else if (admission == CompactionWindowPlanner.Admission.ACCEPT) {
+                    AtomicInteger large = isLarge(task) ? runningLarge.computeIfAbsent(key, k -> new AtomicInteger()) : null;
+                    if (large != null && large.incrementAndGet() > Math.max(1, server.getConcurrencyLimit() - smallReservedSlots)) {
+                        // only reserved slots are free, smaller regions still may be taken
+                        large.decrementAndGet();
+                        continue;
+                    }
+                    if (server.trySubmit(task)) {
+                        remove(task);
+                        firstQueued.remove(task.getInfo().getEncodedName());
+                        planner.onSubmitted(task);
+                        running++;
+                    } else {
+                        if (large != null) {
+                            large.decrementAndGet();
+                        }
+                        busy.add(key);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Called when a dispatched compaction is finished and its slot is released.
+     */
+    void onCompactionFinished(CompactionTask task, long durationMillis, boolean success) {
+        if (success) {
+            planner.onCompactionDone(task, durationMillis);
+        }
+        if (isLarge(task)) {
+            AtomicInteger large = runningLarge.get(task.getServerKey());
+            if (large != null) {
+                large.decrementAndGet();
+            }
+        }
+        wakeUp();
+    }
+
+    private boolean isLarge(CompactionTask task) {
+        return costAware && largeRegionMb > 0 && task.getRegionSize() > largeRegionMb;
+    }
+
+    /**
+     * Candidates waiting longer than max wait first, oldest first, then by weight per predicted second.
+     */
+    private Iterator<CompactionTask> orderByCost(long now) {
+        if (maxWait <= 0) {
+            return Iterators.transform(byScore.iterator(), c -> c.task);
+        }
+        long border = now - maxWait;
+        Iterator<Candidate> starving = byQueued.headSet(new Candidate(border)).iterator();
+        Iterator<Candidate> rest = Iterators.filter(byScore.iterator(), c -> c.queuedAt >= border);
+        return Iterators.transform(Iterators.concat(starving, rest), c -> c.task);
+    }
+
+    /**
+     * @return weight per predicted second of compaction, the prediction comes from the compaction history of the
+     * region, from the average speed, or from the default speed
+     */
+    private double score(CompactionTask task) {
+        return costScore(task.getWeightValue(), planner.predict(task), task.getRegionSize());
+    }
+
+    static double costScore(float weight, long predictedMillis, long regionSizeMb) {
+        double cost = predictedMillis > 0 ? predictedMillis : regionSizeMb * DEFAULT_MILLIS_PER_MB;
+        return weight / Math.max(1.0, cost / 1000);
+    }
+
+    private void remove(CompactionTask task) {
+        Map<String, Candidate> serverQueue = queued.get(task.getServerKey());
+        Candidate candidate = serverQueue == null ? null : serverQueue.remove(task.getInfo().getEncodedName());
+        if (candidate != null) {
+            unindex(candidate);
+        }
+        index.remove(task);
+    }
+
+    private void unindex(Candidate candidate) {
+        index.remove(candidate.task);
+        byScore.remove(candidate);
+        byQueued.remove(candidate);
+    }
+
+    int getQueueDepth() {
+        return index.size();
+    }
+
+    int getQueueDepth(CompactorServer server) {
+        Map<String, Candidate> serverQueue = queued.get(server.getServerKey());
+        return serverQueue == null ? 0 : serverQueue.size();
+    }
+
+    /**
+     * @param percentiles values in range [0, 100]
+     * @return weights of queued candidates at the requested percentiles, empty when the queue is empty
+     */
+    float[] getWeightPercentiles(double... percentiles) {
+        float[] weights = new float[index.size()];
+        int size = 0;
+        for (CompactionTask task : index) {
+            if (size == weights.length) {
+                break;
+            }
+            weights[size++] = task.getWeightValue();
+        }
+        if (size == 0) {
+            return new float[0];
+        }
+        // index is ordered by descending weight
+        float[] result = new float[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100 * size);
+            result[i] = weights[size - Math.max(1, Math.min(size, rank))];
+        }
+        return result;
+    }
+
+    String getStatisticString() {
+        float[] p = getWeightPercentiles(50, 90, 99, 100);
+        if (p.length == 0) {
+            return "Cluster compaction queue is empty.";
+        }
+        String result = String.format("Cluster compaction queue: %d regions; weight p50 %.2f, p90 %.2f, p99 %.2f, max %.2f.", getQueueDepth(), p[0], p[1], p[2], p[3]);
+        if (costAware) {
+            long now = System.currentTimeMillis();
+            long starving = maxWait > 0 ? firstQueued.values().stream().filter(t -> now - t > maxWait).count() : 0;
+            result += String.format(" Large regions compacting: %d, waiting longer than max wait: %d.", runningLarge.values().stream().mapToInt(AtomicInteger::get).sum(), starving);
+        }
+        return result;
+    }
+
+    String getPlanString() {
+        Map<String, Integer> slots = new HashMap<>();
+        servers.forEach((key, server) -> slots.put(key, server.getConcurrencyLimit()));
+        return planner.describePlan(index, slots, System.currentTimeMillis());
+    }
+
+    boolean isPlanned() {
+        return planner.isEnabled();
+    }
+
+    @Override
+    public void close() {
+        dispatcher.shutdownNow();
+        index.clear();
+        byScore.clear();
+        byQueued.clear();
+        queued.clear();
+        firstQueued.clear();
+    }
+
+    private static final class Candidate {
+        private final CompactionTask task;
+        private final String region;
+        private final String serverKey;
+        private final double score;
+        private final long queuedAt;
+
+        private Candidate(CompactionTask task, double score, long queuedAt) {
+            this.task = task;
+            this.region = task.getInfo().getEncodedName();
+            this.serverKey = task.getServerKey();
+            this.score = score;
+            this.queuedAt = queuedAt;
+        }
+
+        /**
+         * Bound for {@link #byQueued}: candidates queued before the given time.
+         */
+        private Candidate(long queuedAt) {
+            this.task = null;
+            this.region = "";
+            this.serverKey = "";
+            this.score = 0;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package org.evla.hbase.compactor;
+
+import org.apache.commons.lang3.StringUtils;
+import org.evla.hbase.configuration.CompactorSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays recorded region metrics ({@link ClusterMetricsRecording}) through the infinite compaction rules with a
+ * simulated clock, so compactor settings can be compared without a live cluster. The simulation uses the configured
+ * weight model, border weight, store size, per server and cluster parallelism, recalculate count, actualize timeout
+ * and dedup period, and dispatches candidates like {@link CompactionScheduler}: by global weight, or with the
+ * cost-aware policy by weight per predicted second with slots reserved for small regions and candidates waiting
+ * longer than max wait first. The duration is predicted the same way: the last simulated compaction of the region,
+ * the average simulated speed, or the scheduler default speed before the first compaction is done.
+ * <p>
+ * A simulated compaction takes region size divided by the given speed. After it the region has one store file and
+ * full locality, then store files and locality change as much as they change in the following snapshots.
+ * <p>
+ * Not simulated: compaction windows and the adaptive concurrency limit, every server has
+ * compactor.parallel.compaction slots at any time.
+ */
+public class CompactionSimulator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactionSimulator.class);
+    private static final long MIN_DURATION = 1_000;
+
+    private final CompactorSettings settings;
+    private final List<ClusterMetricsRecording.Snapshot> snapshots;
+    private final double mbPerSecond;
+
+    private final Map<String, SimRegion> regions = new HashMap<>();
+    private final Map<String, SimServer> servers = new TreeMap<>();
+    private final PriorityQueue<Event> events = new PriorityQueue<>(Comparator.comparingLong((Event e) -> e.time).thenComparingLong(e -> e.order));
+    private final DurationHistogram waitTimes = new DurationHistogram();
+    private final DurationHistogram durations = new DurationHistogram();
+
+    private long now;
+    private long eventOrder = 0;
+    private int running = 0;
+    private double millisPerMb = -1;
+    private long compactions = 0;
+    private long compactedMb = 0;
+    private long lastQueueChange;
+    private int queueDepth = 0;
+    private int maxQueueDepth = 0;
+    private double queueDepthIntegral = 0;
+
+    public CompactionSimulator(CompactorSettings settings, List<ClusterMetricsRecording.Snapshot> snapshots, double mbPerSecond) {
+        if (snapshots.isEmpty()) {
+            throw new IllegalArgumentException("Metrics recording is empty");
+        }
+        if (mbPerSecond <= 0) {
+            throw new IllegalArgumentException("Compaction speed must be positive: " + mbPerSecond);
+        }
+        this.settings = settings;
+        this.snapshots = snapshots;
+        this.mbPerSecond = mbPerSecond;
+        if (StringUtils.isNotBlank(settings.getCompactionWindows()) || settings.isAdaptiveEnable()) {
+            LOGGER.warn("Compaction windows and the adaptive concurrency limit are not simulated");
+        }
+    }
+
+    /**
+     * @return default simulated time: span of the recording, at least one hour
+     */
+    public long getRecordedSpan() {
+        return Math.max(TimeUnit.HOURS.toMillis(1), snapshots.get(snapshots.size() - 1).getTime() - snapshots.get(0).getTime());
+    }
+
+    /**
+     * Runs the simulation for the given simulated time and returns the report.
+     */
+    public String run(long durationMillis) {
+        long start = snapshots.get(0).getTime();
+        long end = start + durationMillis;
+        now = start;
+        lastQueueChange = start;
+        for (int i = 0; i < snapshots.size(); i++) {
+            push(new Event(snapshots.get(i).getTime(), EventType.SNAPSHOT, null, null, i));
+        }
+        long realStart = System.currentTimeMillis();
+        while (!events.isEmpty() && events.peek().time <= end) {
+            Event event = events.poll();
+            advance(event.time);
+            handle(event);
+            while (!events.isEmpty() && events.peek().time == now) {
+                handle(events.poll());
+            }
+            dispatch();
+        }
+        advance(end);
+        String report = report(start, end);
+        LOGGER.info("Simulated {} min in {} ms", TimeUnit.MILLISECONDS.toMinutes(durationMillis), System.currentTimeMillis() - realStart);
+        return report;
+    }
+
+    private void handle(Event event) {
+        switch (event.type) {
+            case SNAPSHOT:
+                applySnapshot(snapshots.get(event.index));
+                break;
+            case COMPLETE:
+                complete(event.region);
+                break;
+            case REFRESH:
+                refresh(event.server);
+                break;
+        }
+    }
+
+    private void applySnapshot(ClusterMetricsRecording.Snapshot snapshot) {
+        Set<String> seen = new HashSet<>();
+        snapshot.getServers().forEach((key, samples) -> {
+            SimServer server = servers.get(key);
+            if (server == null) {
+                server = new SimServer(key);
+                servers.put(key, server);
+                push(new Event(now, EventType.REFRESH, null, server, 0));
+            }
+            for (ClusterMetricsRecording.RegionSample sample : samples) {
+                SimRegion region = regions.computeIfAbsent(sample.getEncodedName(), SimRegion::new);
+                region.server = key;
+                region.sample = sample;
+                seen.add(sample.getEncodedName());
+            }
+        });
+        regions.values().removeIf(r -> !r.running && !seen.contains(r.encodedName));
+    }
+
+    /**
+     * Candidates of the server, the same filter as CompactorServer uses in infinite mode.
+     */
+    private void refresh(SimServer server) {
+        setQueueDepth(queueDepth - server.queue.size());
+        Set<SimRegion> previous = new HashSet<>(server.queue);
+        server.queue.clear();
+        server.doneSinceRefresh = 0;
+        for (SimRegion region : regions.values()) {
+            if (!region.running && server.key.equals(region.server) && !isDeduped(region)) {
+                CompactionWeight weight = region.weight();
+                if (weight.calculateRegionCompactionWeight() > settings.getApproximateBorderWeight() && weight.getTotalRegionSize() > settings.getStoreSizeMb()) {
+                    region.weight = weight.calculateRegionCompactionWeight();
+                    if (!previous.contains(region)) {
+                        // the scheduler keeps the first queued time while the region stays in the queue
+                        region.queuedAt = now;
+                    }
+                    region.queuedOn = server;
+                    server.queue.add(region);
+                }
+            }
+        }
+        setQueueDepth(queueDepth + server.queue.size());
+        if (server.queue.isEmpty() && server.running == 0) {
+            push(new Event(now + settings.getActualizeTimeout(), EventType.REFRESH, null, server, 0));
+        }
+    }
+
+    private boolean isDeduped(SimRegion region) {
+        return region.compactedAt >= 0 && now - region.compactedAt < settings.getHistoryDedupPeriod();
+    }
+
+    private void dispatch() {
+        int clusterLimit = settings.getClusterParallelCompaction();
+        int serverLimit = settings.getParallelCompaction();
+        List<SimRegion> queued = new ArrayList<>();
+        servers.values().forEach(s -> queued.addAll(s.queue));
+        boolean costAware = "cost-aware".equalsIgnoreCase(settings.getSchedulingPolicy());
+        if (costAware) {
+            long maxWait = settings.getMaxWait();
+            Map<SimRegion, Double> scores = new HashMap<>(queued.size() * 2);
+            queued.forEach(r -> scores.put(r, CompactionScheduler.costScore(r.weight, predict(r), r.sample.getSizeMb())));
+            queued.sort((a, b) -> {
+                boolean starvingA = maxWait > 0 && now - a.queuedAt > maxWait;
+                boolean starvingB = maxWait > 0 && now - b.queuedAt > maxWait;
+                if (starvingA != starvingB) {
+                    return starvingA ? -1 : 1;
+                }
+                if (starvingA) {
+                    return Long.compare(a.queuedAt, b.queuedAt);
+                }
+                return Double.compare(scores.get(b), scores.get(a));
+            });
+        } else {
+            queued.sort(Comparator.comparingDouble((SimRegion r) -> r.weight).reversed());
+        }
+        for (SimRegion region : queued) {
+            if (clusterLimit > 0 && running >= clusterLimit) {
+                return;
+            }
+            SimServer server = region.queuedOn;
+            if (regions.get(region.encodedName) != region || !server.key.equals(region.server)) {
+                // region was split, merged or moved after the queue was built, the compaction request would fail
+                server.queue.remove(region);
+                setQueueDepth(queueDepth - 1);
+                continue;
+            }
+            if (server.running >= serverLimit) {
+                continue;
+            }
+            boolean large = costAware && settings.getLargeRegionMb() > 0 && region.sample.getSizeMb() > settings.getLargeRegionMb();
+            if (large && server.runningLarge >= Math.max(1, serverLimit - settings.getSmallReservedSlots())) {
+                continue;
+            }
+            region.large = large;
+            server.queue.remove(region);
+            setQueueDepth(queueDepth - 1);
+            start(server, region);
+        }
+    }
+
+    /**
+     * The same prediction as {@link CompactionWindowPlanner#predict}, over simulated compactions.
+     */
+    private long predict(SimRegion region) {
+        if (region.lastDuration >= 0) {
+            return region.lastDuration;
+        }
+        return millisPerMb > 0 ? (long) (millisPerMb * region.sample.getSizeMb()) : 0;
+    }
+
+    private void start(SimServer server, SimRegion region) {
+        region.running = true;
+        region.runningOn = server;
+        server.running++;
+        server.runningLarge += region.large ? 1 : 0;
+        running++;
+        waitTimes.record(now - region.queuedAt);
+        long duration = Math.max(MIN_DURATION, (long) (region.sample.getSizeMb() / mbPerSecond * 1000));
+        region.startedAt = now;
+        push(new Event(now + duration, EventType.COMPLETE, region, null, 0));
+    }
+
+    private void complete(SimRegion region) {
+        SimServer server = region.runningOn;
+        region.running = false;
+        region.runningOn = null;
+        region.compactedAt = now;
+        region.baseFiles = region.sample.getStoreFiles();
+        region.baseLocality = region.sample.getLocality();
+        server.running--;
+        server.runningLarge -= region.large ? 1 : 0;
+        running--;
+        server.compactions++;
+        server.compactedMb += region.sample.getSizeMb();
+        compactions++;
+        compactedMb += region.sample.getSizeMb();
+        long duration = now - region.startedAt;
+        durations.record(duration);
+        region.lastDuration = duration;
+        if (region.sample.getSizeMb() > 0) {
+            double current = (double) duration / region.sample.getSizeMb();
+            millisPerMb = millisPerMb < 0 ? current : CompactionWindowPlanner.EWMA_ALPHA * current + (1 - CompactionWindowPlanner.EWMA_ALPHA) * millisPerMb;
+        }
+        server.doneSinceRefresh++;
+        if (server.doneSinceRefresh >= settings.getRecalculateRegionCount() || (server.queue.isEmpty() && server.running == 0)) {
+            refresh(server);
+        }
+    }
+
+    private void advance(long time) {
+        queueDepthIntegral += (double) queueDepth * (time - lastQueueChange);
+        lastQueueChange = time;
+        now = time;
+    }
+
+    private void setQueueDepth(int depth) {
+        advance(now);
+        queueDepth = depth;
+        maxQueueDepth = Math.max(maxQueueDepth, depth);
+    }
+
+    private void push(Event event) {
+        event.order = eventOrder++;
+        events.add(event);
+    }
+
+    private String report(long start, long end) {
+        long span = end - start;
+        int backlog = 0;
+        long backlogMb = 0;
+        for (SimRegion region : regions.values()) {
+            if (!region.running && !isDeduped(region)) {
+                CompactionWeight weight = region.weight();
+                if (weight.calculateRegionCompactionWeight() > settings.getApproximateBorderWeight() && weight.getTotalRegionSize() > settings.getStoreSizeMb()) {
+                    backlog++;
+                    backlogMb += weight.getTotalRegionSize();
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Simulated %.1f h of %d snapshots, %d servers, %d regions, speed %.1f MB/s per compaction.%n",
+                span / 3_600_000d, snapshots.size(), servers.size(), regions.size(), mbPerSecond));
+        sb.append(String.format("Settings: border weight %d, store size %d MB, parallel %d per server, %d per cluster, recalculate after %d regions, %s policy.%n",
+                settings.getApproximateBorderWeight(), settings.getStoreSizeMb(), settings.getParallelCompaction(),
+                settings.getClusterParallelCompaction(), settings.getRecalculateRegionCount(), settings.getSchedulingPolicy()));
+        sb.append(String.format("Compactions: %d, %d MB, %.2f MB/s; still running %d.%n",
+                compactions, compactedMb, span > 0 ? compactedMb * 1000d / span : 0, running));
+        sb.append(String.format("Queue: avg %.1f, max %d, at the end %d; wait p50 %d s, p99 %d s, max %d s.%n",
+                span > 0 ? queueDepthIntegral / span : 0, maxQueueDepth, queueDepth,
+                waitTimes.getValueAtPercentile(50) / 1000, waitTimes.getValueAtPercentile(99) / 1000, waitTimes.getMax() / 1000));
+        sb.append(String.format("Compaction time p50 %d s, p99 %d s. Backlog above border at the end: %d regions, %d MB.%n",
+                durations.getValueAtPercentile(50) / 1000, durations.getValueAtPercentile(99) / 1000, backlog, backlogMb));
+        servers.values().forEach(s -> sb.append(String.format("\t%s: %d compactions, %d MB%n", s.key, s.compactions, s.compactedMb)));
+        return sb.toString();
+    }
+
+    private enum EventType {
+        SNAPSHOT, COMPLETE, REFRESH
+    }
+
+    private static final class Event {
+        private final long time;
+        private final EventType type;
+        private final SimRegion region;
+        private final SimServer server;
+        private final int index;
+        private long order;
+
+        private Event(long time, EventType type, SimRegion region, SimServer server, int index) {
+            this.time = time;
+            this.type = type;
+            this.region = region;
+            this.server = server;
+            this.index = index;
+        }
+    }
+
+    private static final class SimServer {
+        private final String key;
+        private final List<SimRegion> queue = new ArrayList<>();
+        private int running = 0;
+        private int runningLarge = 0;
+        private int doneSinceRefresh = 0;
+        private long compactions = 0;
+        private long compactedMb = 0;
+
+        private SimServer(String key) {
+            this.key = key;
+        }
+    }
+
+    private final class SimRegion {
+        private final String encodedName;
+        private String server;
+        private ClusterMetricsRecording.RegionSample sample;
+        private boolean running = false;
+        private boolean large = false;
+        private SimServer queuedOn;
+        private SimServer runningOn;
+        private long queuedAt;
+        private long startedAt;
+        private long lastDuration = -1;
+        private float weight;
+        private long compactedAt = -1;
+        private int baseFiles;
+        private float baseLocality;
+
+        private SimRegion(String encodedName) {
+            this.encodedName = encodedName;
+        }
+
+        /**
+         * Weight of the recorded metrics with the effect of simulated compaction. Weight models measure compaction
+         * age from the wall clock, so the last major compaction time is shifted from simulated to wall clock time.
+         */
+        private CompactionWeight weight() {
+            int storeFiles = sample.getStoreFiles();
+            float locality = sample.getLocality();
+            long lastMajor = sample.getLastMajorCompaction();
+            if (compactedAt >= 0) {
+                storeFiles = 1 + Math.max(0, sample.getStoreFiles() - baseFiles);
+                locality = 1 - Math.max(0, baseLocality - sample.getLocality());
+                lastMajor = compactedAt;
+            }
+            if (lastMajor > 0) {
+                lastMajor += System.currentTimeMillis() - now;
+            }
+            return new CompactionWeight(encodedName, locality, storeFiles, sample.getSizeMb(), sample.getMemStoreMb(),
+                    sample.getReadRequests(), sample.getWriteRequests(), sample.getStoreRefCount(), lastMajor);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.evla.hbase.compactor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compaction accounting of a RegionServer. Statistics of a server are also added to the cluster statistics
+ * it was created with, and the cluster backlog is the sum of the server backlogs.
+ */
+class CompactionStats implements CompactionStatsMXBean, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactionStats.class);
+    private static final long RATE_WINDOW = TimeUnit.MINUTES.toMillis(1);
+
+    private final String name;
+    private final CompactionStats cluster;
+    private final List<CompactionStats> servers = new CopyOnWriteArrayList<>();
+    private final long startTime = System.currentTimeMillis();
+
+    private final LongAdder compactions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder compactedMb = new LongAdder();
+    private final LongAdder queuedMillis = new LongAdder();
+    private final LongAdder runningMillis = new LongAdder();
+    private final LongAdder throttledMillis = new LongAdder();
+    private final AtomicLong backlogMb = new AtomicLong();
+    private final DurationHistogram durations = new DurationHistogram();
+
+    private long windowStart = startTime;
+    private long windowStartMb = 0;
+    private double recentThroughput = 0;
+
+    private ObjectName objectName;
+
+    static CompactionStats cluster() {
+        return new CompactionStats("cluster", null);
+    }
+
+    CompactionStats(String name, CompactionStats cluster) {
+        this.name = name;
+        this.cluster = cluster;
+        if (cluster != null) {
+            cluster.servers.add(this);
+        }
+        register();
+    }
+
+    void onCompaction(long queued, long running, int sizeMb, boolean success) {
+        if (success) {
+            compactions.increment();
+            compactedMb.add(Math.max(0, sizeMb));
+        } else {
+            failures.increment();
+        }
+        queuedMillis.add(Math.max(0, queued));
+        runningMillis.add(running);
+        durations.record(running);
+        if (cluster != null) {
+            cluster.onCompaction(queued, running, sizeMb, success);
+        }
+    }
+
+    void onThrottled(long millis) {
+        throttledMillis.add(millis);
+        if (cluster != null) {
+            cluster.onThrottled(millis);
+        }
+    }
+
+    void setBacklogMb(long mb) {
+        backlogMb.set(mb);
+    }
+
+    void addBacklogMb(long mb) {
+        backlogMb.addAndGet(mb);
+    }
+
+    @Override
+    public long getCompactions() {
+        return compactions.sum();
+    }
+
+    @Override
+    public long getFailedCompactions() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getCompactedMb() {
+        return compactedMb.sum();
+    }
+
+    @Override
+    public double getThroughputMbPerSecond() {
+        long elapsed = System.currentTimeMillis() - startTime;
+        return elapsed > 0 ? compactedMb.sum() * 1000.0 / elapsed : 0;
+    }
+
+    /**
+     * @return throughput of the last completed minute, or the average throughput during the first minute
+     */
+    @Override
+    public synchronized double getRecentThroughputMbPerSecond() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= RATE_WINDOW) {
+            long mb = compactedMb.sum();
+            recentThroughput = (mb - windowStartMb) * 1000.0 / (now - windowStart);
+            windowStart = now;
+            windowStartMb = mb;
+        } else if (windowStart == startTime) {
+            return getThroughputMbPerSecond();
+        }
+        return recentThroughput;
+    }
+
+    @Override
+    public long getDurationMeanMillis() {
+        return (long) durations.getMean();
+    }
+
+    @Override
+    public long getDurationP50Millis() {
+        return durations.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getDurationP95Millis() {
+        return durations.getValueAtPercentile(95);
+    }
+
+    @Override
+    public long getDurationP99Millis() {
+        return durations.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getDurationMaxMillis() {
+        return durations.getMax();
+    }
+
+    @Override
+    public long getQueuedMillis() {
+        return queuedMillis.sum();
+    }
+
+    @Override
+    public long getRunningMillis() {
+        return runningMillis.sum();
+    }
+
+    @Override
+    public long getThrottledMillis() {
+        return throttledMillis.sum();
+    }
+
+    @Override
+    public long getBacklogMb() {
+        if (cluster == null && !servers.isEmpty()) {
+            return servers.stream().mapToLong(CompactionStats::getBacklogMb).sum();
+        }
+        return backlogMb.get();
+    }
+
+    /**
+     * @return estimated time to compact the current backlog, -1 when nothing was compacted yet
+     */
+    @Override
+    public long getEtaSeconds() {
+        double rate = getRecentThroughputMbPerSecond();
+        if (rate <= 0) {
+            rate = getThroughputMbPerSecond();
+        }
+        return rate > 0 ? (long) (getBacklogMb() / rate) : -1;
+    }
+
+    String getThroughputString() {
+        long eta = getEtaSeconds();
+        return String.format("compacted %d MB in %d regions (%d failed), %.2f MB/s, recent %.2f MB/s; duration mean %d ms, p50 %d ms, p95 %d ms, p99 %d ms, max %d ms; "
+                        + "queued %d s, running %d s, throttled %d s; backlog %d MB, ETA %s.",
+                getCompactedMb(), getCompactions(), getFailedCompactions(), getThroughputMbPerSecond(), getRecentThroughputMbPerSecond(),
+                getDurationMeanMillis(), getDurationP50Millis(), getDurationP95Millis(), getDurationP99Millis(), getDurationMaxMillis(),
+                TimeUnit.MILLISECONDS.toSeconds(getQueuedMillis()), TimeUnit.MILLISECONDS.toSeconds(getRunningMillis()), TimeUnit.MILLISECONDS.toSeconds(getThrottledMillis()),
+                getBacklogMb(), eta < 0 ? "unknown" : eta + "s");
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName("org.evla.hbase:type=Compactor,name=" + ObjectName.quote(name));
+            if (server.isRegistered(on)) {
+                server.unregisterMBean(on);
+            }
+            server.registerMBean(this, on);
+            objectName = on;
+        } catch (Exception e) {
+            LOGGER.warn("Cant register compaction statistics {} in MBean server: {}", name, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (cluster != null) {
+            cluster.servers.remove(this);
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (Exception e) {
+                LOGGER.debug("Cant unregister {}: {}", objectName, e.getMessage());
+            }
+            objectName = null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.evla.hbase.compactor;
+
+/**
+ * Compaction throughput of a RegionServer or of the whole cluster, registered in the platform MBean server
+ * as org.evla.hbase:type=Compactor,name=&lt;server or cluster&gt;.
+ */
+public interface CompactionStatsMXBean {
+    long getCompactions();
+
+    long getFailedCompactions();
+
+    long getCompactedMb();
+
+    double getThroughputMbPerSecond();
+
+    double getRecentThroughputMbPerSecond();
+
+    long getDurationMeanMillis();
+
+    long getDurationP50Millis();
+
+    long getDurationP95Millis();
+
+    long getDurationP99Millis();
+
+    long getDurationMaxMillis();
+
+    long getQueuedMillis();
+
+    long getRunningMillis();
+
+    long getThrottledMillis();
+
+    long getBacklogMb();
+
+    long getEtaSeconds();
+}
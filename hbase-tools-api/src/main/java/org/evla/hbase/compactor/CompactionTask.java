@@ -1,8 +1,8 @@
 package org.evla.hbase.compactor;
 
-import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.evla.hbase.configuration.CompactorSettings;
@@ -15,14 +15,15 @@ public class CompactionTask implements Callable<Boolean>, Comparable<CompactionT
     private static final Logger LOGGER = LoggerFactory.getLogger(CompactionTask.class);
 
     private final ServerName sn;
-    private final HRegionInfo info;
+    private final RegionInfo info;
     private final Admin admin;
     private final CompactorSettings settings;
     private final AtomicInteger counter;
     private final AtomicInteger totalVolume;
     private final CompactionWeight weight;
+    private final long createdAt = System.currentTimeMillis();
 
-    CompactionTask(ServerName sn, Admin admin, HRegionInfo info, CompactorSettings settings, CompactionWeight weight, AtomicInteger counter, AtomicInteger totalVolume) {
+    CompactionTask(ServerName sn, Admin admin, RegionInfo info, CompactorSettings settings, CompactionWeight weight, AtomicInteger counter, AtomicInteger totalVolume) {
         this.sn = sn;
         this.admin = admin;
         this.info = info;
@@ -41,7 +42,7 @@ public class CompactionTask implements Callable<Boolean>, Comparable<CompactionT
         }
     }
 
-    private boolean doCompact(HRegionInfo info) {
+    private boolean doCompact(RegionInfo info) {
         try {
             admin.majorCompactRegion(info.getRegionName());
             return true;
@@ -51,13 +52,13 @@ public class CompactionTask implements Callable<Boolean>, Comparable<CompactionT
         }
     }
 
-    private boolean compactRegion(HRegionInfo info) {
+    private boolean compactRegion(RegionInfo info) {
         if (info != null) {
             LOGGER.info("[{}] Start compaction for: {}, weight = {}", sn.getServerName(), info.getRegionNameAsString(), String.format("%.2f", weight.calculateRegionCompactionWeight()));
             try {
                 boolean result = doCompact(info);
                 if (result) {
-                    RSTaskControllerHelper.waitUntilCompacting(admin, info, settings.getStatusDelay());
+                    RSTaskControllerHelper.waitUntilCompacting(admin, sn, info, settings.getStatusDelay());
                     totalVolume.addAndGet(weight.getTotalRegionSize());
                     LOGGER.info("[{}] Compaction done for: {}, old weight = {}", sn.getServerName(), info.getRegionNameAsString(), String.format("%.2f", weight.calculateRegionCompactionWeight()));
                     counter.incrementAndGet();
@@ -72,13 +73,13 @@ public class CompactionTask implements Callable<Boolean>, Comparable<CompactionT
         return false;
     }
 
-    private boolean compactEmptyWeightRegion(HRegionInfo info) {
+    private boolean compactEmptyWeightRegion(RegionInfo info) {
         if (info != null) {
             LOGGER.info("[{}] Start compaction for: {}", sn.getServerName(), info.getRegionNameAsString());
             try {
                 boolean result = doCompact(info);
                 if (result) {
-                    RSTaskControllerHelper.waitUntilCompacting(admin, info, settings.getStatusDelay());
+                    RSTaskControllerHelper.waitUntilCompacting(admin, sn, info, settings.getStatusDelay());
                     LOGGER.info("[{}] Compaction done for: {} ", sn.getServerName(), info.getRegionNameAsString());
                     counter.incrementAndGet();
                     return true;
@@ -92,10 +93,30 @@ public class CompactionTask implements Callable<Boolean>, Comparable<CompactionT
         return false;
     }
 
-    public HRegionInfo getInfo() {
+    public RegionInfo getInfo() {
         return info;
     }
 
+    String getServerKey() {
+        return sn.getAddress().toString();
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    int getRegionSize() {
+        return weight == null ? 0 : weight.getTotalRegionSize();
+    }
+
+    int getStoreFileCount() {
+        return weight == null ? 0 : weight.getStoreFileCount();
+    }
+
+    float getWeightValue() {
+        return weight == null ? 0f : weight.calculateRegionCompactionWeight();
+    }
+
     @Override
     public int compareTo(CompactionTask task) {
         if (weight == null || task.weight == null) {
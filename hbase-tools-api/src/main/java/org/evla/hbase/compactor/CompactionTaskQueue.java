@@ -0,0 +1,233 @@
+package org.evla.hbase.compactor;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded blocking queue of compaction tasks of one RegionServer. Tasks are taken by weight, tasks with equal weight
+ * (or without region metrics at queueing time) in arrival order. A region is accepted only once while it is queued or being compacted, producers wait while the
+ * queue is full, and a consumer is woken as soon as a task is added. After {@link #close()} the drained future
+ * completes when the last queued or running task is done.
+ */
+class CompactionTaskQueue {
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final TreeSet<Entry> queue = new TreeSet<>();
+    private final Set<String> regions = new HashSet<>();
+    private final Map<String, Entry> queued = new HashMap<>();
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+    private long sequence = 0;
+    private boolean closed = false;
+
+    CompactionTaskQueue(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Waits while the queue is full.
+     *
+     * @return false when the region is already queued or being compacted, or the queue is closed
+     */
+    boolean put(CompactionTask task) throws InterruptedException {
+        return add(task, true);
+    }
+
+    /**
+     * Does not wait.
+     *
+     * @return false when the queue is full, the region is already queued or being compacted, or the queue is closed
+     */
+    boolean offer(CompactionTask task) {
+        try {
+            return add(task, false);
+        } catch (InterruptedException e) {
+            // not possible without waiting
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean add(CompactionTask task, boolean wait) throws InterruptedException {
+        String region = task.getInfo().getEncodedName();
+        lock.lockInterruptibly();
+        try {
+            while (wait && !closed && queue.size() >= capacity && !regions.contains(region)) {
+                notFull.await();
+            }
+            if (closed || queue.size() >= capacity || !regions.add(region)) {
+                return false;
+            }
+            Entry entry = new Entry(task, sequence++);
+            queue.add(entry);
+            queued.put(region, entry);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a queued, not yet taken task of the region.
+     *
+     * @return removed task or null
+     */
+    CompactionTask remove(String encodedRegionName) {
+        Entry entry;
+        boolean idle;
+        lock.lock();
+        try {
+            entry = queued.remove(encodedRegionName);
+            if (entry == null) {
+                return null;
+            }
+            queue.remove(entry);
+            regions.remove(encodedRegionName);
+            idle = closed && regions.isEmpty();
+            notFull.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (idle) {
+            drained.complete(null);
+        }
+        return entry.task;
+    }
+
+    /**
+     * @return true when a task of the region is queued and not yet taken
+     */
+    boolean contains(String encodedRegionName) {
+        lock.lock();
+        try {
+            return queued.containsKey(encodedRegionName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The region of the returned task stays reserved until {@link #done(CompactionTask)}.
+     *
+     * @return next task, or null when nothing was added during the timeout or the queue is closed and empty
+     */
+    CompactionTask poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                if (closed || nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            Entry entry = queue.pollFirst();
+            queued.remove(entry.task.getInfo().getEncodedName());
+            notFull.signal();
+            return entry.task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the region of a task taken by {@link #poll}, so it can be queued again.
+     */
+    void done(CompactionTask task) {
+        boolean idle;
+        lock.lock();
+        try {
+            regions.remove(task.getInfo().getEncodedName());
+            idle = closed && regions.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+        if (idle) {
+            drained.complete(null);
+        }
+    }
+
+    /**
+     * Rejects new tasks and wakes all waiting producers and consumers, queued tasks still can be taken.
+     */
+    void close() {
+        boolean idle;
+        lock.lock();
+        try {
+            closed = true;
+            idle = regions.isEmpty();
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (idle) {
+            drained.complete(null);
+        }
+    }
+
+    /**
+     * Removes all queued tasks, running ones are not affected.
+     *
+     * @return number of removed tasks
+     */
+    int clear() {
+        boolean idle;
+        int removed;
+        lock.lock();
+        try {
+            removed = queue.size();
+            queue.forEach(e -> regions.remove(e.task.getInfo().getEncodedName()));
+            queue.clear();
+            queued.clear();
+            idle = closed && regions.isEmpty();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (idle) {
+            drained.complete(null);
+        }
+        return removed;
+    }
+
+    /**
+     * @return future completed when the queue is closed and has no queued or running tasks
+     */
+    CompletableFuture<Void> getDrained() {
+        return drained;
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final CompactionTask task;
+        private final float weight;
+        private final long sequence;
+
+        private Entry(CompactionTask task, long sequence) {
+            this.task = task;
+            this.weight = task.getWeightValue();
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Float.compare(other.weight, weight);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
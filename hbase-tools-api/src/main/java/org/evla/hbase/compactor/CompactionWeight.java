@@ -3,14 +3,28 @@ package org.evla.hbase.compactor;
 
 import org.apache.hadoop.hbase.RegionLoad;
 import org.apache.hadoop.hbase.RegionMetrics;
+import org.apache.hadoop.hbase.Size;
+import org.evla.hbase.configuration.HBaseToolsSettings;
 
 public class CompactionWeight implements Comparable<CompactionWeight> {
+    private static volatile CompactionWeightModel model = new DefaultCompactionWeightModel();
+
     private final String encodedRegionName;
     private final Float locality;
     private final int storeFileCount;
     private final int totalRegionSize;
     private final int maxStoreFile;
 
+    private final long readRequests;
+    private final long writeRequests;
+    private final long compactingCells;
+    private final long compactedCells;
+    private final int storeRefCount;
+    private final int memStoreSize;
+    private final long lastMajorCompaction;
+
+    private final float weight;
+
     @Deprecated
     public CompactionWeight(RegionLoad load) {
         this.encodedRegionName = load.getNameAsString();
@@ -18,6 +32,14 @@ public class CompactionWeight implements Comparable<CompactionWeight> {
         this.storeFileCount = load.getStorefiles();
         this.totalRegionSize = load.getStorefileSizeMB();
         this.maxStoreFile = 0;
+        this.readRequests = load.getReadRequestsCount();
+        this.writeRequests = load.getWriteRequestsCount();
+        this.compactingCells = load.getTotalCompactingKVs();
+        this.compactedCells = load.getCurrentCompactedKVs();
+        this.storeRefCount = 0;
+        this.memStoreSize = load.getMemStoreSizeMB();
+        this.lastMajorCompaction = load.getLastMajorCompactionTs();
+        this.weight = model.calculate(this);
     }
 
     public CompactionWeight(RegionMetrics regionMetrics) {
@@ -26,6 +48,14 @@ public class CompactionWeight implements Comparable<CompactionWeight> {
         this.storeFileCount = regionMetrics.getStoreFileCount();
         this.totalRegionSize = (int) regionMetrics.getStoreFileSize().getLongValue();
         this.maxStoreFile = 0;
+        this.readRequests = regionMetrics.getReadRequestCount();
+        this.writeRequests = regionMetrics.getWriteRequestCount();
+        this.compactingCells = regionMetrics.getCompactingCellCount();
+        this.compactedCells = regionMetrics.getCompactedCellCount();
+        this.storeRefCount = regionMetrics.getStoreRefCount();
+        this.memStoreSize = (int) regionMetrics.getMemStoreSize().get(Size.Unit.MEGABYTE);
+        this.lastMajorCompaction = regionMetrics.getLastMajorCompactionTimestamp();
+        this.weight = model.calculate(this);
     }
 
     CompactionWeight(String encodedRegionName, Float locality, int storeFileCount, int totalRegionSize, int maxStoreFile) {
@@ -34,30 +64,61 @@ public class CompactionWeight implements Comparable<CompactionWeight> {
         this.storeFileCount = storeFileCount;
         this.totalRegionSize = totalRegionSize;
         this.maxStoreFile = maxStoreFile;
+        this.readRequests = 0;
+        this.writeRequests = 0;
+        this.compactingCells = 0;
+        this.compactedCells = 0;
+        this.storeRefCount = 0;
+        this.memStoreSize = 0;
+        this.lastMajorCompaction = 0;
+        this.weight = model.calculate(this);
     }
 
-    public Float calculateRegionCompactionWeight() {
-        if (totalRegionSize < 10)
-            return 0f;
+    CompactionWeight(String encodedRegionName, float locality, int storeFileCount, int totalRegionSize, int memStoreSize,
+                     long readRequests, long writeRequests, int storeRefCount, long lastMajorCompaction) {
+        this.encodedRegionName = encodedRegionName;
+        this.locality = locality;
+        this.storeFileCount = storeFileCount;
+        this.totalRegionSize = totalRegionSize;
+        this.maxStoreFile = 0;
+        this.readRequests = readRequests;
+        this.writeRequests = writeRequests;
+        this.compactingCells = 0;
+        this.compactedCells = 0;
+        this.storeRefCount = storeRefCount;
+        this.memStoreSize = memStoreSize;
+        this.lastMajorCompaction = lastMajorCompaction;
+        this.weight = model.calculate(this);
+    }
 
-        return (1 - locality) * 115f + ((totalRegionSize - maxStoreFile) / 1024f) * (storeFileCount * 1.33f);
+    public static void configure(HBaseToolsSettings settings) {
+        model = CompactionWeightModel.of(settings.getCompactorSettings().getWeightModel());
+    }
+
+    /**
+     * @return weight calculated by the configured model when the object was created
+     */
+    public Float calculateRegionCompactionWeight() {
+        return weight;
     }
 
     @Override
     public String toString() {
         return "Weight => " +
                 "encodedRegionName=" + encodedRegionName +
-                ", calculatedWeight=" + calculateRegionCompactionWeight() +
+                ", calculatedWeight=" + weight +
                 ", locality=" + locality +
                 ", storeFileCount=" + storeFileCount +
                 ", totalRegionSize=" + totalRegionSize +
                 ", maxStoreFile=" + maxStoreFile +
+                ", memStoreSize=" + memStoreSize +
+                ", storeRefCount=" + storeRefCount +
                 '}';
     }
 
     @Override
     public int compareTo(CompactionWeight anotherWeight) {
-        return this.calculateRegionCompactionWeight().compareTo(anotherWeight.calculateRegionCompactionWeight());
+        return Float.compare(this.weight, anotherWeight.weight);
     }
 
     public String getEncodedRegionName() {
@@ -80,4 +141,32 @@ public class CompactionWeight implements Comparable<CompactionWeight> {
         return maxStoreFile;
     }
 
+    public long getReadRequests() {
+        return readRequests;
+    }
+
+    public long getWriteRequests() {
+        return writeRequests;
+    }
+
+    public long getCompactingCells() {
+        return compactingCells;
+    }
+
+    public long getCompactedCells() {
+        return compactedCells;
+    }
+
+    public int getStoreRefCount() {
+        return storeRefCount;
+    }
+
+    public int getMemStoreSize() {
+        return memStoreSize;
+    }
+
+    public long getLastMajorCompaction() {
+        return lastMajorCompaction;
+    }
+
 }
@@ -0,0 +1,159 @@
+package org.evla.hbase.compactor;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranks synthetic regions with compaction weight models, so a model change can be judged by CPU cost and by what
+ * it puts on top. Regions are generated from a fixed seed with skewed sizes, store file counts, locality and
+ * request counters. Every model ranks the same regions: warm-up rounds first, then measured rounds, each one
+ * calculating all weights and sorting the regions by weight.
+ * <p>
+ * Ranking quality is reported for the top ranked regions: store files removed per compacted GB, mean locality,
+ * share of regions with store refs, and overlap with the top of the first model.
+ */
+public class CompactionWeightBenchmark {
+    private static final long SEED = 20240501L;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final double TOP_SHARE = 0.01;
+
+    private final List<CompactionWeight> regions;
+    private final int top;
+    // results are folded into it, so the JIT can not drop the measured code
+    private double sink = 0;
+
+    public CompactionWeightBenchmark(int regionsCount) {
+        if (regionsCount <= 0) {
+            throw new IllegalArgumentException("Regions count must be positive: " + regionsCount);
+        }
+        this.regions = generate(regionsCount);
+        this.top = Math.max(1, (int) (regionsCount * TOP_SHARE));
+    }
+
+    /**
+     * @param models names accepted by {@link CompactionWeightModel#of(String)}
+     * @return report, one line per model
+     */
+    public String run(List<String> models) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d regions, %d warm-up and %d measured rounds, top %d regions%n",
+                regions.size(), WARMUP_ROUNDS, MEASURED_ROUNDS, top));
+        report.append(String.format("%-16s %12s %10s %14s %10s %10s %10s%n",
+                "model", "calc ns/rgn", "sort ms", "files/GB top", "locality", "refs %", "overlap %"));
+        Set<Integer> reference = null;
+        for (String name : models) {
+            CompactionWeightModel model = CompactionWeightModel.of(name);
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                rank(model, null);
+            }
+            long[] times = new long[2];
+            int[] order = null;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                order = rank(model, times);
+            }
+            Set<Integer> topRegions = new HashSet<>();
+            for (int i = 0; i < top; i++) {
+                topRegions.add(order[i]);
+            }
+            if (reference == null) {
+                reference = topRegions;
+            }
+            report.append(String.format("%-16s %12.1f %10.1f %14.2f %10.3f %10.2f %10.1f%n",
+                    name,
+                    (double) times[0] / MEASURED_ROUNDS / regions.size(),
+                    times[1] / MEASURED_ROUNDS / 1e6,
+                    filesPerGb(order), meanLocality(order), refsShare(order),
+                    overlap(reference, topRegions)));
+        }
+        report.append(String.format("checksum %.1f%n", sink));
+        return report.toString();
+    }
+
+    /**
+     * @param times nanoseconds spent on weights and on sorting are added to it when not null
+     * @return region indexes, the heaviest first
+     */
+    private int[] rank(CompactionWeightModel model, long[] times) {
+        long start = System.nanoTime();
+        float[] weights = new float[regions.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = model.calculate(regions.get(i));
+        }
+        long calculated = System.nanoTime();
+        Integer[] order = new Integer[weights.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(weights[b], weights[a]));
+        long sorted = System.nanoTime();
+        if (times != null) {
+            times[0] += calculated - start;
+            times[1] += sorted - calculated;
+        }
+        sink += weights[order[0]];
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private double filesPerGb(int[] order) {
+        long files = 0;
+        long mb = 0;
+        for (int i = 0; i < top; i++) {
+            CompactionWeight w = regions.get(order[i]);
+            files += Math.max(0, w.getStoreFileCount() - 1);
+            mb += w.getTotalRegionSize();
+        }
+        return mb == 0 ? 0 : files * 1024.0 / mb;
+    }
+
+    private double meanLocality(int[] order) {
+        double sum = 0;
+        for (int i = 0; i < top; i++) {
+            sum += regions.get(order[i]).getLocality();
+        }
+        return sum / top;
+    }
+
+    private double refsShare(int[] order) {
+        int refs = 0;
+        for (int i = 0; i < top; i++) {
+            if (regions.get(order[i]).getStoreRefCount() > 0) {
+                refs++;
+            }
+        }
+        return refs * 100.0 / top;
+    }
+
+    private static double overlap(Set<Integer> reference, Set<Integer> regions) {
+        int common = 0;
+        for (Integer region : regions) {
+            if (reference.contains(region)) {
+                common++;
+            }
+        }
+        return common * 100.0 / reference.size();
+    }
+
+    private static List<CompactionWeight> generate(int count) {
+        Random random = new Random(SEED);
+        long now = System.currentTimeMillis();
+        List<CompactionWeight> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // log-normal sizes around 2 GB, most regions have few store files and good locality
+            int size = (int) Math.min(100_000, Math.exp(7.6 + 1.2 * random.nextGaussian()));
+            int storeFiles = 1 + (int) Math.min(60, -Math.log(1 - random.nextDouble()) * 4);
+            float locality = (float) Math.min(1.0, Math.max(0.0, 1 - Math.abs(random.nextGaussian()) * 0.2));
+            int memStore = random.nextInt(4) == 0 ? 0 : random.nextInt(256);
+            long reads = (long) Math.exp(10 + 3 * random.nextGaussian());
+            long writes = (long) Math.exp(10 + 3 * random.nextGaussian());
+            int storeRefs = random.nextInt(20) == 0 ? 1 + random.nextInt(8) : 0;
+            long lastMajor = now - (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(30));
+            result.add(new CompactionWeight("region-" + i, locality, storeFiles, size, memStore, reads, writes, storeRefs, lastMajor));
+        }
+        return result;
+    }
+}
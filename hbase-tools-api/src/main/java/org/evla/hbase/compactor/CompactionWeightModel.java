@@ -0,0 +1,27 @@
+package org.evla.hbase.compactor;
+
+/**
+ * Calculates compaction priority of a region from its metrics, regions with bigger weight are compacted first.
+ * A model is called once per CompactionWeight, the result is cached in the weight.
+ * Custom models are set by class name in compactor.weight.model and need a public no-arg constructor.
+ */
+public interface CompactionWeightModel {
+    String DEFAULT = "default";
+    String MULTI_FACTOR = "multi-factor";
+
+    float calculate(CompactionWeight weight);
+
+    static CompactionWeightModel of(String name) {
+        if (name == null || DEFAULT.equalsIgnoreCase(name)) {
+            return new DefaultCompactionWeightModel();
+        }
+        if (MULTI_FACTOR.equalsIgnoreCase(name)) {
+            return new MultiFactorCompactionWeightModel();
+        }
+        try {
+            return (CompactionWeightModel) Class.forName(name).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cant create compaction weight model " + name, e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.evla.hbase.compactor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.TextStyle;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Daily time window in the form {@code [days@]HH:mm-HH:mm[/budgetMb]}, where days are ranges joined by '+',
+ * for example {@code Mon-Fri@22:00-06:00} or {@code Sat+Sun@00:00-00:00/500000}. A window may cross midnight,
+ * days are applied to the day the window starts. Equal start and end mean the whole day.
+ */
+class CompactionWindow {
+    private final boolean[] days = new boolean[7];
+    private final int startMinute;
+    private final int endMinute;
+    private final long budgetMb;
+
+    private CompactionWindow(int startMinute, int endMinute, long budgetMb) {
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+        this.budgetMb = budgetMb;
+    }
+
+    static CompactionWindow parse(String value) {
+        String spec = value.trim();
+        long budget = 0;
+        int slash = spec.indexOf('/');
+        if (slash >= 0) {
+            budget = Long.parseLong(spec.substring(slash + 1).trim());
+            spec = spec.substring(0, slash);
+        }
+        String dayPart = null;
+        int at = spec.indexOf('@');
+        if (at >= 0) {
+            dayPart = spec.substring(0, at);
+            spec = spec.substring(at + 1);
+        }
+        String[] times = spec.split("-");
+        if (times.length != 2) {
+            throw new IllegalArgumentException("Wrong compaction window: " + value);
+        }
+        CompactionWindow window = new CompactionWindow(minutes(times[0]), minutes(times[1]), budget);
+        if (dayPart == null) {
+            Arrays.fill(window.days, true);
+        } else {
+            for (String range : dayPart.split("\\+")) {
+                String[] bounds = range.split("-");
+                int from = day(bounds[0]);
+                int to = bounds.length > 1 ? day(bounds[1]) : from;
+                for (int d = from; ; d = (d + 1) % 7) {
+                    window.days[d] = true;
+                    if (d == to) {
+                        break;
+                    }
+                }
+            }
+        }
+        return window;
+    }
+
+    private static int minutes(String time) {
+        String[] parts = time.trim().split(":");
+        return Integer.parseInt(parts[0]) * 60 + (parts.length > 1 ? Integer.parseInt(parts[1]) : 0);
+    }
+
+    private static int day(String name) {
+        String prefix = name.trim().toUpperCase(Locale.ROOT);
+        for (DayOfWeek d : DayOfWeek.values()) {
+            if (d.name().startsWith(prefix)) {
+                return d.getValue() - 1;
+            }
+        }
+        throw new IllegalArgumentException("Wrong day of week: " + name);
+    }
+
+    /**
+     * @return start of the window occurrence containing the time, or null when the window is closed
+     */
+    ZonedDateTime currentStart(ZonedDateTime now) {
+        int minute = now.getHour() * 60 + now.getMinute();
+        int today = now.getDayOfWeek().getValue() - 1;
+        LocalDate date = now.toLocalDate();
+        boolean wraps = endMinute <= startMinute;
+        if (days[today] && minute >= startMinute && (wraps || minute < endMinute)) {
+            return at(date, startMinute, now.getZone());
+        }
+        int yesterday = (today + 6) % 7;
+        if (wraps && days[yesterday] && minute < endMinute) {
+            return at(date.minusDays(1), startMinute, now.getZone());
+        }
+        return null;
+    }
+
+    ZonedDateTime end(ZonedDateTime start) {
+        int length = endMinute > startMinute ? endMinute - startMinute : endMinute + 24 * 60 - startMinute;
+        return start.plusMinutes(length);
+    }
+
+    long getBudgetMb() {
+        return budgetMb;
+    }
+
+    private static ZonedDateTime at(LocalDate date, int minute, ZoneId zone) {
+        return LocalDateTime.of(date.getYear(), date.getMonth(), date.getDayOfMonth(), minute / 60, minute % 60).atZone(zone);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int d = 0; d < 7; d++) {
+            if (days[d]) {
+                sb.append(DayOfWeek.of(d + 1).getDisplayName(TextStyle.SHORT, Locale.ROOT)).append(' ');
+            }
+        }
+        sb.append(String.format("%02d:%02d-%02d:%02d", startMinute / 60, startMinute % 60, endMinute / 60, endMinute % 60));
+        if (budgetMb > 0) {
+            sb.append(", budget ").append(budgetMb).append(" MB");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,201 @@
+package org.evla.hbase.compactor;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the infinite compaction to configured time windows. The schedule is
+ * {@code scope=window[,window...][;scope=...]}, where scope is '*' for all servers, 'host:port' for a
+ * RegionServer or 'table:name' for a table, and window is described in {@link CompactionWindow}.
+ * A table schedule has priority over a server schedule, a server schedule over '*'. Without schedule
+ * compaction is always allowed.
+ * <p>
+ * A compaction is started only when its predicted duration fits into the rest of the window and its size
+ * fits into the window budget, so the highest-weight regions that fit are taken first. The budget of a server
+ * schedule, '*' included, is counted for every server, the budget of a table schedule for the whole table.
+ * At the window edge new compactions are not started, but running ones are completed.
+ */
+class CompactionWindowPlanner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactionWindowPlanner.class);
+    private static final String ALL = "*";
+    private static final String TABLE_PREFIX = "table:";
+    static final double EWMA_ALPHA = 0.2;
+
+    enum Admission {
+        ACCEPT,
+        /**
+         * the task does not fit into the window, smaller tasks still may
+         */
+        SKIP,
+        /**
+         * the window of the server is closed
+         */
+        CLOSED
+    }
+
+    private final Map<String, List<CompactionWindow>> schedule = new HashMap<>();
+    // open windows by table scope or by server
+    private final Map<String, ActiveWindow> active = new ConcurrentHashMap<>();
+    private final ZoneId zone = ZoneId.systemDefault();
+    private volatile double millisPerMb = -1;
+
+    CompactionWindowPlanner(String spec) {
+        if (StringUtils.isBlank(spec)) {
+            return;
+        }
+        for (String entry : spec.split(";")) {
+            if (StringUtils.isBlank(entry)) {
+                continue;
+            }
+            int eq = entry.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Wrong compaction schedule entry: " + entry);
+            }
+            List<CompactionWindow> windows = new ArrayList<>();
+            for (String w : entry.substring(eq + 1).split(",")) {
+                windows.add(CompactionWindow.parse(w));
+            }
+            String scope = entry.substring(0, eq).trim();
+            schedule.put(scope, windows);
+            LOGGER.info("Compaction windows for {}: {}", scope, windows);
+        }
+    }
+
+    boolean isEnabled() {
+        return !schedule.isEmpty();
+    }
+
+    Admission admit(CompactionTask task, long now) {
+        if (schedule.isEmpty()) {
+            return Admission.ACCEPT;
+        }
+        String tableScope = TABLE_PREFIX + task.getInfo().getTable().getNameAsString();
+        boolean byTable = schedule.containsKey(tableScope);
+        String scope = byTable ? tableScope : scopeOf(task.getServerKey());
+        if (scope == null) {
+            return Admission.ACCEPT;
+        }
+        ActiveWindow window = activeWindow(scope, byTable ? scope : task.getServerKey(), now);
+        if (window == null) {
+            return byTable ? Admission.SKIP : Admission.CLOSED;
+        }
+        if (window.budgetMb > 0 && window.usedMb.get() + task.getRegionSize() > window.budgetMb) {
+            return Admission.SKIP;
+        }
+        if (now + predict(task) > window.end) {
+            return Admission.SKIP;
+        }
+        return Admission.ACCEPT;
+    }
+
+    void onSubmitted(CompactionTask task) {
+        if (schedule.isEmpty()) {
+            return;
+        }
+        String tableScope = TABLE_PREFIX + task.getInfo().getTable().getNameAsString();
+        ActiveWindow window = active.get(schedule.containsKey(tableScope) ? tableScope : task.getServerKey());
+        if (window != null) {
+            window.usedMb.addAndGet(task.getRegionSize());
+        }
+    }
+
+    void onCompactionDone(CompactionTask task, long durationMillis) {
+        if (task.getRegionSize() > 0) {
+            double current = (double) durationMillis / task.getRegionSize();
+            double previous = millisPerMb;
+            millisPerMb = previous < 0 ? current : EWMA_ALPHA * current + (1 - EWMA_ALPHA) * previous;
+        }
+    }
+
+    /**
+     * @return predicted compaction duration from the compaction history of the region, or from the average speed
+     */
+    long predict(CompactionTask task) {
+        long last = CompactionHistory.getInstance().getLastDuration(task.getInfo().getEncodedName());
+        if (last >= 0) {
+            return last;
+        }
+        double speed = millisPerMb;
+        return speed > 0 ? (long) (speed * task.getRegionSize()) : 0;
+    }
+
+    /**
+     * Estimates which part of the queue fits into the currently open windows of the servers.
+     */
+    String describePlan(Collection<CompactionTask> queue, Map<String, Integer> serverSlots, long now) {
+        if (schedule.isEmpty()) {
+            return "Compaction windows are not configured.";
+        }
+        Map<String, Long> capacity = new HashMap<>();
+        serverSlots.forEach((server, slots) -> {
+            String scope = scopeOf(server);
+            ActiveWindow window = scope == null ? null : activeWindow(scope, server, now);
+            long rest = scope == null ? Long.MAX_VALUE : window == null ? 0 : Math.max(0, window.end - now) * slots;
+            capacity.put(server, rest);
+        });
+        int fit = 0;
+        long fitMb = 0;
+        for (CompactionTask task : queue) {
+            Long rest = capacity.get(task.getServerKey());
+            long duration = predict(task);
+            if (rest != null && rest >= duration) {
+                capacity.put(task.getServerKey(), rest == Long.MAX_VALUE ? rest : rest - duration);
+                fit++;
+                fitMb += task.getRegionSize();
+            }
+        }
+        return String.format("Compaction windows: %d of %d queued regions (%d MB) fit into open windows.", fit, queue.size(), fitMb);
+    }
+
+    private String scopeOf(String server) {
+        if (schedule.containsKey(server)) {
+            return server;
+        }
+        return schedule.containsKey(ALL) ? ALL : null;
+    }
+
+    /**
+     * @param key the table scope or the server, the window and its budget are tracked by it
+     */
+    private ActiveWindow activeWindow(String scope, String key, long now) {
+        ZonedDateTime time = Instant.ofEpochMilli(now).atZone(zone);
+        for (CompactionWindow w : schedule.get(scope)) {
+            ZonedDateTime start = w.currentStart(time);
+            if (start != null) {
+                long startMillis = start.toInstant().toEpochMilli();
+                ActiveWindow current = active.get(key);
+                if (current == null || current.start != startMillis) {
+                    current = new ActiveWindow(startMillis, w.end(start).toInstant().toEpochMilli(), w.getBudgetMb());
+                    active.put(key, current);
+                    LOGGER.info("Compaction window for {} is open till {}", key, w.end(start));
+                }
+                return current;
+            }
+        }
+        if (active.remove(key) != null) {
+            LOGGER.info("Compaction window for {} is closed, running compactions will be completed", key);
+        }
+        return null;
+    }
+
+    private static final class ActiveWindow {
+        private final long start;
+        private final long end;
+        private final long budgetMb;
+        private final AtomicLong usedMb = new AtomicLong();
+
+        private ActiveWindow(long start, long end, long budgetMb) {
+            this.start = start;
+            this.end = end;
+            this.budgetMb = budgetMb;
+        }
+    }
+}
@@ -3,10 +3,13 @@ package org.evla.hbase.compactor;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.configuration.HBaseToolsSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.evla.hbase.Monitoring;
+import org.evla.hbase.ToolsThreads;
 import org.evla.hbase.meta.MetaTableHolder;
 
 import java.io.IOException;
@@ -20,10 +23,11 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
 
     private final Admin admin;
     private final HBaseToolsSettings settings;
-    private ClusterStatus clusterStatus;
+    private ClusterMetrics clusterMetrics;
 
     private ExecutorService serversPool;
     private List<CompactorServer> compactorServersList;
+    private CompactionScheduler scheduler;
 
     private Collection<ServerName> servers;
     private Collection<String> serverHosts;
@@ -32,6 +36,7 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
     private final AtomicReference<Boolean> inWork;
 
     private final Monitoring monitor = new Monitoring("compactor");
+    private final CompactionStats clusterStats = CompactionStats.cluster();
 
     public CompactorManager(Admin admin, HBaseToolsSettings settings) {
         this.admin = admin;
@@ -45,10 +50,10 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
 
     private void initService() {
         try {
-            actualizeClusterStatus();
-            this.servers = new ArrayList<>(this.clusterStatus.getServers());
+            actualizeClusterMetrics();
+            this.servers = new ArrayList<>(this.clusterMetrics.getLiveServerMetrics().keySet());
             this.serverHosts = servers.stream().map(ServerName::getHostAndPort).collect(Collectors.toList());
-            this.serversPool = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("server-compactor-%d").build());
+            this.serversPool = Executors.newCachedThreadPool(ToolsThreads.newThreadFactory("server-compactor-%d", true));
             monitor.startMonitoring(TimeUnit.MINUTES, 1);
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
@@ -65,14 +70,14 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
     @Override
     public void compactRegions(List<HRegionLocation> regions) {
         checkInWork();
-        Map<ServerName, List<HRegionInfo>> tasks = queuedRegions(regions);
+        Map<ServerName, List<RegionInfo>> tasks = queuedRegions(regions);
         runCompactForRegions(tasks);
     }
 
     @Override
     public void compactTables(List<TableName> tables) {
         checkInWork();
-        Map<ServerName, List<HRegionInfo>> tasks = new HashMap<>();
+        Map<ServerName, List<RegionInfo>> tasks = new HashMap<>();
         try {
             for (TableName tn : tables) {
                 tasks.putAll(queuedRegions(admin.getConnection().getRegionLocator(tn).getAllRegionLocations()));
@@ -86,7 +91,7 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
     @Override
     public void compactNamespaces(Set<String> namespaces) {
         checkInWork();
-        Map<ServerName, List<HRegionInfo>> tasks = new HashMap<>();
+        Map<ServerName, List<RegionInfo>> tasks = new HashMap<>();
         try {
             for (String namespace : namespaces) {
                 for (TableName tn : admin.listTableNamesByNamespace(namespace)) {
@@ -99,7 +104,7 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
         runCompactForRegions(tasks);
     }
 
-    private void runCompactForRegions(Map<ServerName, List<HRegionInfo>> tasks) {
+    private void runCompactForRegions(Map<ServerName, List<RegionInfo>> tasks) {
         compactorServersList = new ArrayList<>();
         monitor.registerSingleMonitor((logger) -> {
             for (CompactorServer c : compactorServersList) {
@@ -108,8 +113,12 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
             for (CompactorServer c : compactorServersList) {
                 logger.info(c.getInstanceName() + ": " + c.getStatisticString());
             }
+            for (CompactorServer c : compactorServersList) {
+                logger.info(c.getInstanceName() + ": " + c.getThroughputString());
+            }
+            logger.info("Cluster: " + clusterStats.getThroughputString());
         });
-        tasks.keySet().forEach(sn -> compactorServersList.add(new CompactorServer(this, metaTableHolder, tasks.get(sn), sn, admin, settings, settings.getCompactorSettings().getJmxPort(sn.getPort()))));
+        tasks.keySet().forEach(sn -> compactorServersList.add(new CompactorServer(this, metaTableHolder, clusterStats, tasks.get(sn), sn, admin, settings, settings.getCompactorSettings().getJmxPort(sn.getPort()))));
         try {
             List<Future<Boolean>> res = serversPool.invokeAll(compactorServersList);
             for (Future<Boolean> f : res) {
@@ -125,8 +134,9 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
     @Override
     public void infiniteCompact() {
         checkInWork();
-        compactorServersList = new ArrayList<>();
-        servers.forEach(sn -> compactorServersList.add(new CompactorServer(this, metaTableHolder, sn, admin, settings, settings.getCompactorSettings().getJmxPort(sn.getPort()))));
+        compactorServersList = new CopyOnWriteArrayList<>();
+        scheduler = new CompactionScheduler(settings.getCompactorSettings());
+        servers.forEach(sn -> compactorServersList.add(new CompactorServer(this, metaTableHolder, scheduler, clusterStats, sn, admin, settings, settings.getCompactorSettings().getJmxPort(sn.getPort()))));
         monitor.registerSingleMonitor((logger) -> {
             try {
                 for (CompactorServer c : compactorServersList) {
@@ -135,25 +145,34 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
                 for (CompactorServer c : compactorServersList) {
                     logger.info(c.getInstanceName() + ": " + c.getStatisticString());
                 }
+                for (CompactorServer c : compactorServersList) {
+                    logger.info(c.getInstanceName() + ": " + c.getThroughputString());
+                }
+                logger.info("Cluster: " + clusterStats.getThroughputString());
+                logger.info(scheduler.getStatisticString());
+                if (scheduler.isPlanned()) {
+                    logger.info(scheduler.getPlanString());
+                }
             } catch (Exception e) {
                 LOGGER.error(e.getMessage(), e);
             }
         });
         compactorServersList.forEach(serversPool::submit);
+        scheduler.start();
         Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rs-monitor").build())
                 .scheduleWithFixedDelay(this::monitorServersThreads, settings.getCompactorSettings().getRefreshDelay(), settings.getCompactorSettings().getRefreshDelay(), TimeUnit.MILLISECONDS);
     }
 
     private void monitorServersThreads() {
         try {
-            actualizeClusterStatus();
+            actualizeClusterMetrics();
 
-            this.clusterStatus.getServers().forEach(rs -> {
+            this.clusterMetrics.getLiveServerMetrics().keySet().forEach(rs -> {
                 if (!serverHosts.contains(rs.getHostAndPort())) {
                     LOGGER.warn("There is new RegionServer in cluster. Add compactor process for {}", rs);
                     serverHosts.add(rs.getHostAndPort());
                     servers.add(rs);
-                    CompactorServer cs = new CompactorServer(this, metaTableHolder, rs, admin, settings, settings.getCompactorSettings().getJmxPort(rs.getPort()));
+                    CompactorServer cs = new CompactorServer(this, metaTableHolder, scheduler, clusterStats, rs, admin, settings, settings.getCompactorSettings().getJmxPort(rs.getPort()));
                     compactorServersList.add(cs);
                     serversPool.submit(cs);
                 }
@@ -163,18 +182,18 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
         }
     }
 
-    private void actualizeClusterStatus() throws IOException {
-        ClusterStatus cs = admin.getClusterStatus();
+    private void actualizeClusterMetrics() throws IOException {
+        ClusterMetrics metrics = ClusterMetricsProvider.getInstance(admin).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.LIVE_SERVERS));
         synchronized (this) {
-            this.clusterStatus = cs;
+            this.clusterMetrics = metrics;
         }
     }
 
-    private Map<ServerName, List<HRegionInfo>> queuedRegions(List<HRegionLocation> regions) {
+    private Map<ServerName, List<RegionInfo>> queuedRegions(List<HRegionLocation> regions) {
         try {
-            Map<ServerName, List<HRegionInfo>> tasks = new HashMap<>();
+            Map<ServerName, List<RegionInfo>> tasks = new HashMap<>();
             for (HRegionLocation loc : regions) {
-                tasks.computeIfAbsent(loc.getServerName(), (s) -> new LinkedList<>()).add(loc.getRegionInfo());
+                tasks.computeIfAbsent(loc.getServerName(), (s) -> new LinkedList<>()).add(loc.getRegion());
             }
             return tasks;
         } catch (Exception e) {
@@ -191,11 +210,15 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
         }
         this.inWork.set(false);
         LOGGER.info("Start closing all compactor resources.");
+        if (scheduler != null) {
+            scheduler.close();
+        }
         if (compactorServersList != null && !compactorServersList.isEmpty()) {
             for (CompactorServer c : compactorServersList) {
                 c.close();
             }
         }
+        clusterStats.close();
         if (serversPool != null) {
             try {
                 serversPool.awaitTermination(5, TimeUnit.SECONDS);
@@ -210,8 +233,8 @@ public class CompactorManager implements Compactor, ClusterStatusManageable {
     }
 
     @Override
-    public ClusterStatus getClusterStatus() {
-        return clusterStatus;
+    public ClusterMetrics getClusterMetrics() {
+        return clusterMetrics;
     }
 
 }
@@ -1,17 +1,12 @@
 package org.evla.hbase.compactor;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.RegionMetrics;
 import org.apache.hadoop.hbase.ServerMetrics;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.RegionInfo;
+import org.evla.hbase.ToolsThreads;
 import org.evla.hbase.configuration.HBaseToolsSettings;
-import org.evla.hbase.jmx.JMXRegionServerMetrics;
 import org.evla.hbase.meta.MetaTableHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +21,7 @@ import java.util.stream.Collectors;
 public class CompactorServer implements Callable<Boolean>, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(CompactorServer.class);
 
-    private List<HRegionInfo> regionInfos;
+    private List<RegionInfo> regionInfos;
 
     private ServerName sn;
     private final String server;
@@ -39,23 +34,14 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
 
     private final boolean isInfinite;
     private final MetaTableHolder metaTableHolder;
+    private final CompactionScheduler scheduler;
+    private final AdaptiveConcurrencyLimit limit;
+    private final CompactionStats stats;
+    private final CompactionHistory history = CompactionHistory.getInstance();
 
     private final AtomicInteger allRegionsToCompact = new AtomicInteger(0);
     private final AtomicInteger doneRegions = new AtomicInteger(0);
-    private JMXRegionServerMetrics jmx;
-
-    private final LoadingCache<HRegionInfo, Object> tempCache = CacheBuilder
-            .newBuilder()
-            .maximumSize(350)
-            .expireAfterWrite(1, TimeUnit.DAYS)
-            .build(new CacheLoader<HRegionInfo, Object>() {
-                @Override
-                public Object load(HRegionInfo key) throws Exception {
-                    return null;
-                }
-            });
-
-    private static final Object object = new Object();
+    private volatile RegionServerLoadSignal loadSignal;
 
     private final ThreadPoolExecutor pool;
     private Map<String, RegionMetrics> loads;
@@ -64,31 +50,35 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
     private final AtomicInteger recalcCount = new AtomicInteger(-1);
     private final AtomicInteger totalCompactedVolume = new AtomicInteger(0);
 
-    private CompactorServer(ClusterStatusManageable manager, MetaTableHolder metaTableHolder, ServerName sn, Admin admin, HBaseToolsSettings settings, int jmxPort, boolean isInfinite) {
+    private CompactorServer(ClusterStatusManageable manager, MetaTableHolder metaTableHolder, CompactionScheduler scheduler, CompactionStats clusterStats, ServerName sn, Admin admin, HBaseToolsSettings settings, int jmxPort, boolean isInfinite) {
         this.manager = manager;
         this.metaTableHolder = metaTableHolder;
+        this.scheduler = scheduler;
         this.sn = sn;
         this.server = sn.getHostAndPort();
         this.admin = admin;
         this.settings = settings;
         this.jmxPort = jmxPort;
         this.isInfinite = isInfinite;
-        this.pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(settings.getCompactorSettings().getParallelCompaction(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat(sn.getHostAndPort() + "-thread-%d").build());
+        this.limit = new AdaptiveConcurrencyLimit(sn, settings.getCompactorSettings());
+        this.stats = new CompactionStats(server, clusterStats);
+        this.pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(limit.getMax(), ToolsThreads.newThreadFactory(sn.getHostAndPort() + "-thread-%d", true));
     }
 
-    CompactorServer(ClusterStatusManageable manager, MetaTableHolder metaTableHolder, List<HRegionInfo> regionInfos, ServerName sn, Admin admin, HBaseToolsSettings settings, int jmxPort) {
-        this(manager, metaTableHolder, sn, admin, settings, jmxPort, false);
+    CompactorServer(ClusterStatusManageable manager, MetaTableHolder metaTableHolder, CompactionStats clusterStats, List<RegionInfo> regionInfos, ServerName sn, Admin admin, HBaseToolsSettings settings, int jmxPort) {
+        this(manager, metaTableHolder, null, clusterStats, sn, admin, settings, jmxPort, false);
         this.regionInfos = regionInfos;
         this.loads = getRegionsLoad();
     }
 
-    CompactorServer(ClusterStatusManageable manager, MetaTableHolder metaTableHolder, ServerName sn, Admin admin, HBaseToolsSettings settings, int jmxPort) {
-        this(manager, metaTableHolder, sn, admin, settings, jmxPort, true);
+    CompactorServer(ClusterStatusManageable manager, MetaTableHolder metaTableHolder, CompactionScheduler scheduler, CompactionStats clusterStats, ServerName sn, Admin admin, HBaseToolsSettings settings, int jmxPort) {
+        this(manager, metaTableHolder, scheduler, clusterStats, sn, admin, settings, jmxPort, true);
+        scheduler.register(this);
     }
 
     private Map<String, RegionMetrics> getRegionsLoad() {
         try {
-            ServerMetrics serverMetrics = manager.getClusterStatus().getLiveServerMetrics().get(sn);
+            ServerMetrics serverMetrics = manager.getClusterMetrics().getLiveServerMetrics().get(sn);
             if (serverMetrics == null) {
                 return Collections.emptyMap();
             }
@@ -105,7 +95,7 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
         }
     }
 
-    private List<HRegionInfo> getAllRegions() {
+    private List<RegionInfo> getAllRegions() {
         return new ArrayList<>(this.metaTableHolder.getAllRegionsByServer(admin.getConnection(), sn, true));
     }
 
@@ -118,40 +108,35 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
     public Boolean call() {
         renameCurrentThread();
         // менять jmx нам не нужно, так как он привязано только к хосту
-        jmx = new JMXRegionServerMetrics(sn, jmxPort);
+        loadSignal = new RegionServerLoadSignal(sn, jmxPort, settings.getCompactorSettings(), limit, stats);
         return isInfinite
                 ? runInfiniteCompactionTasks()
                 : runCompactionTasks();
     }
 
-    @SuppressWarnings("InfiniteLoopStatement")
+    /**
+     * Publishes candidates of the server to the cluster scheduler, which submits them back through {@link #trySubmit}.
+     */
     private boolean runInfiniteCompactionTasks() {
-        Queue<CompactionTask> compactionTasks;
-        try {
-            compactionTasks = getCompactionTasks(true);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-
-        CompactionTask task;
-        while (true) {
+        scheduler.offer(this, getCompactionTasks(true));
+        while (!pool.isShutdown()) {
             try {
                 if (doneRegions.get() >= settings.getCompactorSettings().getRecalculateRegionCount()) {
-                    compactionTasks = getCompactionTasks(true);
+                    Queue<CompactionTask> compactionTasks = getCompactionTasks(true);
+                    scheduler.offer(this, compactionTasks);
                     LOGGER.info("Refresh compaction queue. New size is {}", compactionTasks.size());
-                }
-
-                if ((task = compactionTasks.poll()) != null) {
-                    createAndSubmitFuture(task);
-                } else {
+                } else if (scheduler.getQueueDepth(this) == 0 && getRunningCount() == 0) {
                     LOGGER.info("There is no any regions for compaction. Waiting...");
                     sleep(settings.getCompactorSettings().getActualizeTimeout());
-                    compactionTasks = getCompactionTasks(true);
+                    scheduler.offer(this, getCompactionTasks(true));
+                } else {
+                    sleep(settings.getCompactorSettings().getStatusDelay());
                 }
             } catch (Exception e) {
                 LOGGER.error(e.getMessage(), e);
             }
         }
+        return true;
     }
 
     private boolean runCompactionTasks() {
@@ -191,6 +176,7 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
             this.loads = getRegionsLoad();
         }
 
+        long now = System.currentTimeMillis();
         regionInfos.forEach(ri -> {
             String encodedRegionName = RegionInfo.getRegionNameAsString(ri.getRegionName());
             RegionMetrics rl = loads.get(encodedRegionName);
@@ -198,15 +184,17 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
                 LOGGER.debug("Empty RegionLoad. This is valid for moved region ({})", ri);
             } else {
                 CompactionWeight weight = new CompactionWeight(rl);
+                history.onMetrics(ri.getEncodedName(), weight.getTotalRegionSize(), weight.getStoreFileCount());
                 if (!isInfinite) {
                     compactionTasks.add(new CompactionTask(sn, admin, ri, settings.getCompactorSettings(), weight, doneRegions, totalCompactedVolume));
-                } else if (filterWeight(weight) && !tempCache.asMap().containsKey(ri)) {
+                } else if (filterWeight(weight) && !history.isSkipped(ri.getEncodedName(), now)) {
                     compactionTasks.add(new CompactionTask(sn, admin, ri, settings.getCompactorSettings(), weight, doneRegions, totalCompactedVolume));
                 }
                 statisticMap.put(sn.getHostname() + ": " + rl.getNameAsString(), weight);
             }
         });
 
+        stats.setBacklogMb(compactionTasks.stream().mapToLong(CompactionTask::getRegionSize).sum());
         if (isInfinite || settings.getCompactorSettings().isNeedSorting()) {
             allRegionsToCompact.set(compactionTasks.size());
             compactionTasks.sort(CompactionTask::compareTo);
@@ -218,7 +206,7 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
 
     private boolean validateServer() {
         try {
-            Collection<ServerName> servers = manager.getClusterStatus().getServers();
+            Collection<ServerName> servers = manager.getClusterMetrics().getLiveServerMetrics().keySet();
             if (servers.stream().anyMatch(currentServer -> sn.equals(currentServer))) {
                 return true;
             }
@@ -241,39 +229,84 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
         return weight.calculateRegionCompactionWeight() > settings.getCompactorSettings().getApproximateBorderWeight() && weight.getTotalRegionSize() > settings.getCompactorSettings().getStoreSizeMb();
     }
 
-    private Future<Boolean> createAndSubmitFuture(CompactionTask task) {
+    private Future<Boolean> createAndSubmitFuture(CompactionTask task) throws InterruptedException {
         Objects.requireNonNull(task, "task is null");
-        while (true) {
-            int compQueue = jmx.getCompactionQueueLength();
-            int flushQueue = jmx.getFlushQueueLength();
-            if (compQueue > settings.getCompactorSettings().getMaxCompactionsBorder()) {
-                LOGGER.info("[{}] Compaction queue is too much right now: {}", sn, compQueue);
-                sleep(10 * settings.getCompactorSettings().getAdditionDelay());
-            } else if (flushQueue > settings.getCompactorSettings().getMaxFlushesBorder()) {
-                LOGGER.info("[{}] Flush queue is too much right now: {}", sn, flushQueue);
-                sleep(10 * settings.getCompactorSettings().getAdditionDelay());
-            } else {
-                if (pool.getActiveCount() < pool.getCorePoolSize()) {
-                    Future<Boolean> f = pool.submit(task);
-                    tempCache.put(task.getInfo(), object);
-                    sleep(settings.getCompactorSettings().getAdditionDelay());
-                    return f;
-                } else {
-                    LOGGER.debug("Compaction pool for {} is full... Waiting...", sn);
-                    sleep(settings.getCompactorSettings().getAdditionDelay());
+        limit.acquire();
+        long backoff;
+        while ((backoff = loadSignal.getBackoff()) > 0) {
+            sleep(backoff);
+        }
+        return submit(task);
+    }
+
+    /**
+     * Non-blocking submit used by the cluster scheduler.
+     *
+     * @return false when the server has no free slot or is saturated right now
+     */
+    boolean trySubmit(CompactionTask task) {
+        RegionServerLoadSignal signal = loadSignal;
+        if (signal == null || pool.isShutdown() || signal.getBackoff() > 0 || !limit.tryAcquire()) {
+            return false;
+        }
+        submit(task);
+        return true;
+    }
+
+    /**
+     * Caller must hold a permit, it is released when the compaction is finished.
+     */
+    private Future<Boolean> submit(CompactionTask task) {
+        try {
+            Future<Boolean> f = pool.submit(() -> {
+                long start = System.currentTimeMillis();
+                boolean result = false;
+                history.onStarted(task.getInfo().getEncodedName(), task.getRegionSize(), task.getStoreFileCount());
+                try {
+                    result = task.call();
+                    return result;
+                } finally {
+                    long running = System.currentTimeMillis() - start;
+                    if (result) {
+                        limit.onCompactionDone(running, task.getRegionSize());
+                    }
+                    stats.onCompaction(start - task.getCreatedAt(), running, task.getRegionSize(), result);
+                    history.onCompleted(task.getInfo().getEncodedName(), running, result);
+                    limit.release();
+                    if (scheduler != null) {
+                        scheduler.onCompactionFinished(task, running, result);
+                    }
                 }
-            }
+            });
+            stats.addBacklogMb(-task.getRegionSize());
+            return f;
+        } catch (RejectedExecutionException e) {
+            limit.release();
+            throw e;
         }
     }
 
+    int getConcurrencyLimit() {
+        return limit.getLimit();
+    }
+
+    int getRunningCount() {
+        return limit.getRunning();
+    }
+
+    String getServerKey() {
+        return server;
+    }
+
     @Override
     public void close() {
         if (pool != null) {
             pool.shutdown();
         }
-        if (jmx != null) {
-            jmx.close();
+        if (loadSignal != null) {
+            loadSignal.close();
         }
+        stats.close();
     }
 
     private static void sleep(long timeout) {
@@ -292,7 +325,7 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
         if (allRegionsToCompact.get() == 0) {
             return "no regions for compaction.";
         }
-        return String.format("%.2f%% (%3d of %3d)", ((double) doneRegions.get() / allRegionsToCompact.get()) * 100, doneRegions.get(), allRegionsToCompact.get());
+        return String.format("%.2f%% (%3d of %3d), running %d of %d", ((double) doneRegions.get() / allRegionsToCompact.get()) * 100, doneRegions.get(), allRegionsToCompact.get(), limit.getRunning(), limit.getLimit());
     }
 
     String getStatisticString() {
@@ -314,6 +347,10 @@ public class CompactorServer implements Callable<Boolean>, Closeable {
         return "Not calculated";
     }
 
+    String getThroughputString() {
+        return stats.getThroughputString();
+    }
+
     int getDoneRegionsCount() {
         return doneRegions.get();
     }
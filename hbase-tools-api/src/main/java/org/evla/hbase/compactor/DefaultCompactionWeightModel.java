@@ -0,0 +1,15 @@
+package org.evla.hbase.compactor;
+
+/**
+ * Locality penalty plus size multiplied by the store file count.
+ */
+public class DefaultCompactionWeightModel implements CompactionWeightModel {
+
+    @Override
+    public float calculate(CompactionWeight weight) {
+        if (weight.getTotalRegionSize() < 10)
+            return 0f;
+
+        return (1 - weight.getLocality()) * 115f + ((weight.getTotalRegionSize() - weight.getMaxStoreFile()) / 1024f) * (weight.getStoreFileCount() * 1.33f);
+    }
+}
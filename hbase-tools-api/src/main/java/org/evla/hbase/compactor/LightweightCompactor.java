@@ -1,23 +1,24 @@
 package org.evla.hbase.compactor;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import org.apache.hadoop.hbase.ClusterStatus;
 import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.evla.hbase.meta.MetaChange;
+import org.evla.hbase.meta.MetaChangeListener;
+import org.evla.hbase.meta.MetaChangeType;
+import org.evla.hbase.meta.MetaTableHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.evla.hbase.Monitoring;
-import org.evla.hbase.rstask.RSTaskControllerHelper;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class LightweightCompactor implements Compactor {
@@ -27,18 +28,32 @@ public class LightweightCompactor implements Compactor {
     private final HBaseToolsSettings settings;
 
     private ExecutorService serversPool;
-    private Map<ServerName, QueuedCompactorServer> compactorServersList;
+    private volatile Map<ServerName, QueuedCompactorServer> compactorServersList;
 
     private Collection<ServerName> servers;
 
-    private final AtomicBoolean isStopped = new AtomicBoolean(false);
+    private CompletableFuture<Void> drained = null;
     private final Monitoring monitor = new Monitoring("partial-compactor");
 
+    private final MetaTableHolder metaTableHolder;
+    private final MetaChangeListener metaChangeListener = this::onMetaChange;
+    private final ScheduledExecutorService metaRefresher = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("compactor-meta-refresher").build());
+
     public LightweightCompactor(Admin admin, HBaseToolsSettings settings) {
+        this(admin, settings, new MetaTableHolder());
+    }
+
+    /**
+     * @param metaTableHolder shared with the caller, so hbase:meta is read once for both
+     */
+    public LightweightCompactor(Admin admin, HBaseToolsSettings settings, MetaTableHolder metaTableHolder) {
         this.admin = admin;
         this.settings = settings;
+        this.metaTableHolder = metaTableHolder;
         initService(admin);
-        this.compactorServersList = new HashMap<>();
+        this.compactorServersList = new ConcurrentHashMap<>();
+        metaTableHolder.subscribe(metaChangeListener);
         monitor.registerSingleMonitor((logger) -> {
             AtomicInteger done = new AtomicInteger(0);
             AtomicInteger scheduled = new AtomicInteger(0);
@@ -56,11 +71,9 @@ public class LightweightCompactor implements Compactor {
     }
 
     private void initService(Admin admin) {
-        ClusterStatus status;
         try {
-            status = admin.getClusterStatus();
-            this.servers = status.getServers();
-            this.serversPool = Executors.newFixedThreadPool(servers.size(), new ThreadFactoryBuilder().setNameFormat("compactor-thread-%d").build());
+            this.servers = ClusterMetricsProvider.getInstance(admin).getServers();
+            this.serversPool = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("compactor-thread-%d").build());
             monitor.startMonitoring(TimeUnit.MINUTES, 1);
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
@@ -99,53 +112,151 @@ public class LightweightCompactor implements Compactor {
 
     @Override
     public void infiniteCompact() {
-        compactorServersList = new HashMap<>();
-        servers.forEach(sn -> compactorServersList.put(sn, new QueuedCompactorServer(sn, admin, settings, settings.getCompactorSettings().getJmxPort(sn.getPort()))));
+        servers.forEach(this::getServer);
+        metaRefresher.scheduleWithFixedDelay(this::refreshMeta, settings.getCompactorSettings().getAdditionDelay(),
+                settings.getCompactorSettings().getAdditionDelay(), TimeUnit.MILLISECONDS);
+    }
 
-        compactorServersList.values().forEach(serversPool::submit);
+    /**
+     * Queue of a server is created when the first region of the server is queued.
+     *
+     * @return null when the compactor is stopped
+     */
+    private QueuedCompactorServer getServer(ServerName sn) {
+        QueuedCompactorServer server = compactorServersList.get(sn);
+        if (server != null) {
+            return server;
+        }
+        synchronized (this) {
+            if (drained != null) {
+                return null;
+            }
+            server = compactorServersList.get(sn);
+            if (server == null) {
+                server = new QueuedCompactorServer(this, sn, admin, settings, settings.getCompactorSettings().getJmxPort(sn.getPort()));
+                compactorServersList.put(sn, server);
+                serversPool.submit(server);
+                LOGGER.info("Compaction queue created for {}", sn);
+            }
+            return server;
+        }
     }
 
-    @Override
-    public void close() {
-        monitor.close();
-        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", String.valueOf(200));
-        if (!isStopped.get()) {
-            stopCompact();
-            compactorServersList.values().parallelStream().forEach(QueuedCompactorServer::close);
-            return;
+    /**
+     * @return server currently hosting the region by the last read hbase:meta, or null when it is unknown
+     */
+    ServerName locate(RegionInfo info) {
+        HRegionLocation location = metaTableHolder.getSnapshot().getRegionLocation(info.getEncodedName());
+        return location == null ? null : location.getServerName();
+    }
+
+    /**
+     * Queues the region on the given server.
+     *
+     * @param wait wait while the queue of the server is full
+     */
+    boolean route(RegionInfo info, ServerName sn, boolean wait) {
+        QueuedCompactorServer server = getServer(sn);
+        boolean queued = server != null && server.addCompactionTask(info, wait);
+        if (!queued) {
+            LOGGER.debug("Region {} is not queued on {}: it is already queued or compacting, queue is full or compactor is stopped", info.getEncodedName(), sn);
         }
+        return queued;
+    }
 
-        LOGGER.info("Start closing all compactor resources.");
-        if (compactorServersList != null && !compactorServersList.isEmpty()) {
-            compactorServersList.values().parallelStream().forEach(QueuedCompactorServer::close);
+    private void refreshMeta() {
+        try {
+            if (compactorServersList.values().stream().anyMatch(s -> s.getScheduledTasksNumber() > 0)) {
+                metaTableHolder.refresh(admin.getConnection());
+            }
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
         }
-        if (serversPool != null) {
-            serversPool.shutdown();
+    }
+
+    /**
+     * Moves queued tasks after their regions, drops tasks of split and merged regions.
+     */
+    private void onMetaChange(MetaChange change) {
+        QueuedCompactorServer source = change.getSource() == null ? null : compactorServersList.get(change.getSource());
+        if (source == null || !source.isQueued(change.getEncodedRegionName())) {
+            return;
         }
-        LOGGER.info("Compactor closed");
+        if (change.getType() == MetaChangeType.MOVED) {
+            if (!source.removeCompactionTask(change.getEncodedRegionName())) {
+                return;
+            }
+            if (route(change.getRegionInfo(), change.getDestination(), false)) {
+                LOGGER.info("Region {} moved from {} to {}, queued compaction moved too", change.getEncodedRegionName(), change.getSource(), change.getDestination());
+            } else {
+                // destination queue is full, the region is compacted in place
+                source.addCompactionTask(change.getRegionInfo(), false);
+            }
+        } else if (change.getType() == MetaChangeType.SPLIT || change.getType() == MetaChangeType.MERGED) {
+            if (source.removeCompactionTask(change.getEncodedRegionName())) {
+                LOGGER.info("Region {} was {}, queued compaction removed", change.getEncodedRegionName(), change.getType());
+            }
+        }
+    }
+
+    /**
+     * Does not wait: stops accepting new regions and releases resources when queued and running compactions are
+     * finished. Use {@link #drain()} or {@link #stopCompact()} to wait for them.
+     */
+    @Override
+    public void close() {
+        drain();
     }
 
+    /**
+     * Stops accepting new regions, already queued ones are compacted.
+     *
+     * @return future completed when the last queued or running compaction is finished
+     */
+    public synchronized CompletableFuture<Void> drain() {
+        if (drained == null) {
+            CompletableFuture<?>[] futures = compactorServersList.values().stream().map(QueuedCompactorServer::drain).toArray(CompletableFuture[]::new);
+            drained = CompletableFuture.allOf(futures).whenComplete((v, e) -> {
+                metaRefresher.shutdownNow();
+                metaTableHolder.unsubscribe(metaChangeListener);
+                monitor.close();
+                serversPool.shutdown();
+                LOGGER.info("Compactor closed");
+            });
+        }
+        return drained;
+    }
+
+    /**
+     * Stops accepting new regions and drops queued ones, running compactions are finished.
+     *
+     * @return future completed when the last running compaction is finished
+     */
+    public synchronized CompletableFuture<Void> cancel() {
+        compactorServersList.values().forEach(QueuedCompactorServer::cancel);
+        return drain();
+    }
+
+    /**
+     * Queues the region on the server hosting it by the last read hbase:meta, or on the server of the location
+     * when the region is not known yet.
+     */
     private void addTaskForCompact(HRegionLocation location) {
-        QueuedCompactorServer cs = compactorServersList.get(location.getServerName());
-        cs.addCompactionTask(location);
+        ServerName current = locate(location.getRegion());
+        route(location.getRegion(), current == null ? location.getServerName() : current, true);
     }
 
+    /**
+     * Compacts all queued regions and waits until the last compaction is finished.
+     */
     public void stopCompact() {
-        while (true) {
-            boolean hasTasks = false;
-            for (QueuedCompactorServer s : compactorServersList.values()) {
-                if (s.hasPreparedTasks()) {
-                    RSTaskControllerHelper.sleep(3_000);
-                    hasTasks = true;
-                    break;
-                }
-            }
-
-            if (!hasTasks) {
-                isStopped.set(true);
-                break;
-            }
+        try {
+            drain().get();
+        } catch (InterruptedException e) {
+            LOGGER.error(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error(e.getMessage(), e);
         }
-        close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package org.evla.hbase.compactor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default model extended with the region activity and state:
+ * <ul>
+ * <li>regions already being compacted get zero weight;</li>
+ * <li>memstore is counted as a future store file;</li>
+ * <li>read-heavy regions gain more from fewer store files than write-heavy ones;</li>
+ * <li>regions not major compacted for a long time get a bonus;</li>
+ * <li>store files held by readers (store ref count) make compaction less useful right now.</li>
+ * </ul>
+ * RegionMetrics exposes request counters since region open, so their ratio is used instead of rates.
+ */
+public class MultiFactorCompactionWeightModel implements CompactionWeightModel {
+    private static final float LOCALITY_FACTOR = 115f;
+    private static final float STORE_FILE_FACTOR = 1.33f;
+    private static final float READ_BONUS = 0.5f;
+    private static final float AGE_BONUS_PER_DAY = 2f;
+    private static final float MAX_AGE_BONUS = 60f;
+    private static final float STORE_REF_PENALTY = 0.05f;
+
+    @Override
+    public float calculate(CompactionWeight weight) {
+        if (weight.getTotalRegionSize() < 10) {
+            return 0f;
+        }
+        if (weight.getCompactingCells() > 0 && weight.getCompactedCells() < weight.getCompactingCells()) {
+            return 0f;
+        }
+        int storeFiles = weight.getStoreFileCount() + (weight.getMemStoreSize() > 0 ? 1 : 0);
+        float size = weight.getTotalRegionSize() + weight.getMemStoreSize() - weight.getMaxStoreFile();
+        float result = (1 - weight.getLocality()) * LOCALITY_FACTOR + (size / 1024f) * (storeFiles * STORE_FILE_FACTOR);
+
+        long requests = weight.getReadRequests() + weight.getWriteRequests();
+        if (requests > 0) {
+            result *= 1 + READ_BONUS * weight.getReadRequests() / requests;
+        }
+        if (weight.getLastMajorCompaction() > 0) {
+            float days = (float) (System.currentTimeMillis() - weight.getLastMajorCompaction()) / TimeUnit.DAYS.toMillis(1);
+            result += Math.min(MAX_AGE_BONUS, Math.max(0, days) * AGE_BONUS_PER_DAY);
+        }
+        return result / (1 + STORE_REF_PENALTY * weight.getStoreRefCount());
+    }
+}
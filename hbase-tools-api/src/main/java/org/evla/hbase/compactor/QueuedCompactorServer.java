@@ -1,16 +1,20 @@
 package org.evla.hbase.compactor;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ClusterMetrics;
+import org.apache.hadoop.hbase.RegionMetrics;
+import org.apache.hadoop.hbase.ServerMetrics;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.evla.hbase.ToolsThreads;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.rstask.RSTaskControllerHelper;
 import org.evla.hbase.configuration.HBaseToolsSettings;
-import org.evla.hbase.jmx.JMXRegionServerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -19,48 +23,60 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class QueuedCompactorServer implements Callable<Boolean>, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(QueuedCompactorServer.class);
 
+    private final LightweightCompactor owner;
     private final ServerName sn;
     private final Admin admin;
     private final HBaseToolsSettings settings;
     private final int jmxPort;
 
-    private JMXRegionServerMetrics jmx;
+    private RegionServerLoadSignal loadSignal;
 
     private final AtomicBoolean isStopped = new AtomicBoolean(false);
     private final AtomicInteger counter = new AtomicInteger(0);
+    private final AtomicInteger compactedVolume = new AtomicInteger(0);
     private final ThreadPoolExecutor pool;
+    private final AdaptiveConcurrencyLimit limit;
 
-    private final Queue<CompactionTask> tasks;
+    private final CompactionTaskQueue tasks;
 
-    QueuedCompactorServer(ServerName sn, Admin admin, HBaseToolsSettings settings, int jmxPort) {
+    QueuedCompactorServer(LightweightCompactor owner, ServerName sn, Admin admin, HBaseToolsSettings settings, int jmxPort) {
+        this.owner = owner;
         this.sn = sn;
         this.admin = admin;
         this.settings = settings;
         this.jmxPort = jmxPort;
-        this.tasks = new LinkedList<>();
-        this.pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(settings.getCompactorSettings().getParallelCompaction(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat(sn.getHostAndPort() + "-compact-thread").build());
+        this.tasks = new CompactionTaskQueue(settings.getCompactorSettings().getQueueCapacity());
+        this.limit = new AdaptiveConcurrencyLimit(sn, settings.getCompactorSettings());
+        this.pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(limit.getMax(), ToolsThreads.newThreadFactory(sn.getAddress().toString() + "-compact-thread-%d", true));
     }
 
     @Override
     public Boolean call() {
-        jmx = new JMXRegionServerMetrics(sn, jmxPort);
-        return runCompactionTasks();
+        loadSignal = new RegionServerLoadSignal(sn, jmxPort, settings.getCompactorSettings(), limit, null);
+        try {
+            return runCompactionTasks();
+        } finally {
+            loadSignal.close();
+        }
     }
 
     private boolean runCompactionTasks() {
         CompactionTask task;
         while (true) {
             try {
-                if ((task = tasks.poll()) != null) {
-                    submitFuture(task);
-                } else {
-                    if (!isStopped.get()) {
-                        LOGGER.debug("There is no any regions for compaction. Waiting...");
-                        RSTaskControllerHelper.sleep(settings.getCompactorSettings().getAdditionDelay());
+                if ((task = tasks.poll(settings.getCompactorSettings().getAdditionDelay(), TimeUnit.MILLISECONDS)) != null) {
+                    if (isMoved(task)) {
+                        tasks.done(task);
                     } else {
-                        break;
+                        submitFuture(task);
                     }
+                } else if (isStopped.get()) {
+                    break;
                 }
+            } catch (InterruptedException e) {
+                LOGGER.error(e.getMessage(), e);
+                Thread.currentThread().interrupt();
+                break;
             } catch (Exception e) {
                 LOGGER.error(e.getMessage(), e);
             }
@@ -68,49 +84,76 @@ public class QueuedCompactorServer implements Callable<Boolean>, Closeable {
         return true;
     }
 
-    private Future<Boolean> submitFuture(CompactionTask task) {
+    /**
+     * @return true when the region is served by another server now and its task was handed over to that server
+     */
+    private boolean isMoved(CompactionTask task) {
+        ServerName current = owner.locate(task.getInfo());
+        return current != null && !current.equals(sn) && owner.route(task.getInfo(), current, false);
+    }
+
+    private Future<Boolean> submitFuture(CompactionTask task) throws InterruptedException {
         Objects.requireNonNull(task, "task is null");
-        while (true) {
-            int compQueue = jmx.getCompactionQueueLength();
-            int flushQueue = jmx.getFlushQueueLength();
-            if (compQueue > settings.getCompactorSettings().getMaxCompactionsBorder()) {
-                LOGGER.info("[{}] Compaction queue is too much right now: {}", sn, compQueue);
-                RSTaskControllerHelper.sleep(10 * settings.getCompactorSettings().getAdditionDelay());
-            } else if (flushQueue > settings.getCompactorSettings().getMaxFlushesBorder()) {
-                LOGGER.info("[{}] Flush queue is too much right now: {}", sn, flushQueue);
-                RSTaskControllerHelper.sleep(10 * settings.getCompactorSettings().getAdditionDelay());
-            } else {
-                if (pool.getActiveCount() < pool.getCorePoolSize()) {
-                    Future<Boolean> f = pool.submit(task);
-                    RSTaskControllerHelper.sleep(settings.getCompactorSettings().getAdditionDelay());
-                    return f;
-                } else {
-                    LOGGER.debug("Compaction pool for {} is full... Waiting...", sn);
-                    RSTaskControllerHelper.sleep(settings.getCompactorSettings().getAdditionDelay());
+        try {
+            limit.acquire();
+        } catch (InterruptedException e) {
+            tasks.done(task);
+            throw e;
+        }
+        long backoff;
+        while ((backoff = loadSignal.getBackoff()) > 0) {
+            RSTaskControllerHelper.sleep(backoff);
+        }
+        try {
+            return pool.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    tasks.done(task);
+                    limit.release();
                 }
-            }
+            });
+        } catch (RejectedExecutionException e) {
+            tasks.done(task);
+            limit.release();
+            throw e;
         }
     }
 
+    /**
+     * Does not wait: stops accepting new regions and releases resources when the queued and running compactions
+     * are finished.
+     */
     @Override
     public void close() {
-        if (!isStopped.get()) {
-            stop();
-        }
-        if (pool != null) {
-            try {
-                pool.awaitTermination(5, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                LOGGER.error(e.getMessage(), e);
-            }
-        }
-        if (jmx != null) {
-            jmx.close();
+        drain();
+    }
+
+    /**
+     * Stops accepting new regions, already queued ones are compacted.
+     *
+     * @return future completed when the last queued or running compaction is finished
+     */
+    public CompletableFuture<Void> drain() {
+        if (isStopped.compareAndSet(false, true)) {
+            tasks.getDrained().whenComplete((v, e) -> pool.shutdown());
+            tasks.close();
         }
+        return tasks.getDrained();
     }
 
-    public void stop() {
-        isStopped.set(true);
+    /**
+     * Stops accepting new regions and removes queued ones, running compactions are finished.
+     *
+     * @return future completed when the last running compaction is finished
+     */
+    public CompletableFuture<Void> cancel() {
+        CompletableFuture<Void> drained = drain();
+        int removed = tasks.clear();
+        if (removed > 0) {
+            LOGGER.info("{} queued compactions cancelled on {}", removed, sn);
+        }
+        return drained;
     }
 
     String getInstanceName() {
@@ -121,12 +164,55 @@ public class QueuedCompactorServer implements Callable<Boolean>, Closeable {
         return String.format("Current queue: %3d. Already compacted: %3d", tasks.size(), counter.get());
     }
 
-    void addCompactionTask(HRegionLocation location) {
-        tasks.add(new CompactionTask(sn, admin, location.getRegionInfo(), settings.getCompactorSettings(), null, counter, null));
+    /**
+     * @param wait wait while the queue of the server is full
+     * @return false when the region is already queued or being compacted, the queue is full and wait is false,
+     * or the server is stopped
+     */
+    boolean addCompactionTask(RegionInfo info, boolean wait) {
+        CompactionTask task = new CompactionTask(sn, admin, info, settings.getCompactorSettings(), getWeight(info), counter, compactedVolume);
+        if (!wait) {
+            return tasks.offer(task);
+        }
+        try {
+            return tasks.put(task);
+        } catch (InterruptedException e) {
+            LOGGER.error(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Weight from the cluster metrics shared by all compactors, so queueing many regions costs at most one
+     * request per staleness period.
+     *
+     * @return null when the region is not reported by the server yet
+     */
+    private CompactionWeight getWeight(RegionInfo info) {
+        try {
+            ServerMetrics metrics = ClusterMetricsProvider.getInstance(admin).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.LIVE_SERVERS)).getLiveServerMetrics().get(sn);
+            RegionMetrics region = metrics == null ? null : metrics.getRegionMetrics().get(info.getRegionName());
+            return region == null ? null : new CompactionWeight(region);
+        } catch (IOException e) {
+            LOGGER.warn("Cant get metrics of region {}: {}", info.getEncodedName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return true when a queued, not yet started task of the region was removed
+     */
+    boolean removeCompactionTask(String encodedRegionName) {
+        return tasks.remove(encodedRegionName) != null;
+    }
+
+    boolean isQueued(String encodedRegionName) {
+        return tasks.contains(encodedRegionName);
     }
 
-    boolean hasPreparedTasks() {
-        return tasks.size() > 0;
+    ServerName getServerName() {
+        return sn;
     }
 
     public int getCompactedTasksNumber() {
@@ -0,0 +1,120 @@
+package org.evla.hbase.compactor;
+
+import org.apache.hadoop.hbase.ServerName;
+import org.evla.hbase.ToolsThreads;
+import org.evla.hbase.configuration.CompactorSettings;
+import org.evla.hbase.jmx.JMXRegionServerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compaction and flush queue lengths of a RegionServer, refreshed in background by JMX, so dispatching
+ * never waits for a JMX round trip. While the server is saturated new compactions are delayed with an
+ * exponential backoff from the addition delay up to ten addition delays.
+ * <p>
+ * Every server is refreshed by its own thread, JMX calls have no timeout and a hung RegionServer must not stall
+ * the signals of the other servers. Until the first refresh the queues are taken as empty.
+ */
+class RegionServerLoadSignal implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegionServerLoadSignal.class);
+
+    private final ServerName sn;
+    private final int jmxPort;
+    private final CompactorSettings settings;
+    private final ScheduledExecutorService refresher;
+    private final AdaptiveConcurrencyLimit limit;
+    private final CompactionStats stats;
+    private final ScheduledFuture<?> refresh;
+
+    private volatile JMXRegionServerMetrics jmx;
+    private volatile int compactionQueue;
+    private volatile int flushQueue;
+    private volatile double latency99th;
+
+    private long backoff = 0;
+    private long saturatedUntil = 0;
+
+    /**
+     * @param stats receives the time the server is throttled, may be null
+     */
+    RegionServerLoadSignal(ServerName sn, int jmxPort, CompactorSettings settings, AdaptiveConcurrencyLimit limit, CompactionStats stats) {
+        this.sn = sn;
+        this.jmxPort = jmxPort;
+        this.settings = settings;
+        this.limit = limit;
+        this.stats = stats;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(ToolsThreads.newThreadFactory("rs-load-signal-" + sn.getHostname() + "-%d", true));
+        this.refresh = refresher.scheduleWithFixedDelay(this::refresh, 0, settings.getJmxRefreshDelay(), TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh() {
+        try {
+            if (jmx == null) {
+                jmx = new JMXRegionServerMetrics(sn, jmxPort);
+            }
+            compactionQueue = jmx.getCompactionQueueLength();
+            flushQueue = jmx.getFlushQueueLength();
+            if (limit.isAdaptive()) {
+                if (settings.getAdaptiveLatencyTarget() > 0) {
+                    latency99th = Math.max(jmx.getOperationLatency99th("Get"),
+                            Math.max(jmx.getOperationLatency99th("Put"), jmx.getOperationLatency99th("Delete")));
+                }
+                limit.adjust(compactionQueue, flushQueue, latency99th);
+            }
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return time in millis to wait before the next compaction may be started, 0 when the server is not saturated
+     */
+    synchronized long getBackoff() {
+        long now = System.currentTimeMillis();
+        if (now < saturatedUntil) {
+            return saturatedUntil - now;
+        }
+        int compQueue = compactionQueue;
+        int flushes = flushQueue;
+        if (compQueue > settings.getMaxCompactionsBorder() || flushes > settings.getMaxFlushesBorder()) {
+            long delay = settings.getAdditionDelay();
+            backoff = backoff == 0 ? delay : Math.min(backoff * 2, 10 * delay);
+            saturatedUntil = now + backoff;
+            if (stats != null) {
+                stats.onThrottled(backoff);
+            }
+            LOGGER.info("[{}] RegionServer is saturated: compaction queue {}, flush queue {}. Backoff {} ms", sn, compQueue, flushes, backoff);
+            return backoff;
+        }
+        backoff = 0;
+        return 0;
+    }
+
+    int getCompactionQueue() {
+        return compactionQueue;
+    }
+
+    int getFlushQueue() {
+        return flushQueue;
+    }
+
+    double getLatency99th() {
+        return latency99th;
+    }
+
+    @Override
+    public void close() {
+        refresh.cancel(false);
+        refresher.shutdownNow();
+        JMXRegionServerMetrics metrics = jmx;
+        if (metrics != null) {
+            metrics.close();
+        }
+    }
+}
@@ -3,6 +3,8 @@ package org.evla.hbase.compactor;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.configuration.HBaseToolsSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +13,7 @@ import org.evla.hbase.meta.MetaTableHolder;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -25,7 +28,7 @@ public class SingleServerCompactorManager implements Compactor, ClusterStatusMan
 
     private final Admin admin;
     private final HBaseToolsSettings settings;
-    private ClusterStatus clusterStatus;
+    private ClusterMetrics clusterMetrics;
 
     private ExecutorService serverPool;
     private CompactorServer compactorServer;
@@ -49,9 +52,9 @@ public class SingleServerCompactorManager implements Compactor, ClusterStatusMan
 
     private void initService(String serverName) {
         try {
-            this.clusterStatus = admin.getClusterStatus();
+            this.clusterMetrics = ClusterMetricsProvider.getInstance(admin).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.LIVE_SERVERS));
             ServerName tmp = ServerName.parseServerName(serverName);
-            for (ServerName sn : clusterStatus.getServers()) {
+            for (ServerName sn : clusterMetrics.getLiveServerMetrics().keySet()) {
                 if (Objects.equals(tmp.getHostAndPort(), sn.getHostAndPort())) {
                     this.server = sn;
                     break;
@@ -97,23 +100,24 @@ public class SingleServerCompactorManager implements Compactor, ClusterStatusMan
 
     @Override
     public void compact() {
-        List<HRegionInfo> allRegions = getTasksForServer();
+        List<RegionInfo> allRegions = getTasksForServer();
         LOGGER.info("Start compacting all problem regions for {}", server);
         runCompactForRegions(allRegions);
         LOGGER.info("{} already compacted", server);
         close();
     }
 
-    private List<HRegionInfo> getTasksForServer() {
+    private List<RegionInfo> getTasksForServer() {
         return new ArrayList<>(metaTableHolder.getAllRegionsByServer(admin.getConnection(), server));
     }
 
-    private void runCompactForRegions(List<HRegionInfo> tasks) {
+    private void runCompactForRegions(List<RegionInfo> tasks) {
         monitor.registerSingleMonitor((logger) -> {
             logger.info(compactorServer.getInstanceName() + ": " + compactorServer.getStatusString());
             logger.info(compactorServer.getInstanceName() + ": " + compactorServer.getStatisticString());
+            logger.info(compactorServer.getInstanceName() + ": " + compactorServer.getThroughputString());
         });
-        compactorServer = new CompactorServer(this, metaTableHolder, tasks, server, admin, settings, settings.getCompactorSettings().getJmxPort(server.getPort()));
+        compactorServer = new CompactorServer(this, metaTableHolder, null, tasks, server, admin, settings, settings.getCompactorSettings().getJmxPort(server.getPort()));
         try {
             Future<Boolean> res = serverPool.submit(compactorServer);
             if (!res.get()) {
@@ -145,8 +149,8 @@ public class SingleServerCompactorManager implements Compactor, ClusterStatusMan
     }
 
     @Override
-    public ClusterStatus getClusterStatus() {
-        return clusterStatus;
+    public ClusterMetrics getClusterMetrics() {
+        return clusterMetrics;
     }
 
 }
@@ -59,4 +59,28 @@ public class CommonSettings {
         return commonProperties.get(HBaseToolsOptions.CommonOptions.COMMON_PROPERTY_HBASE_SITE.getName()).getValue();
     }
 
+
+    public boolean isSnapshotCacheEnable() {
+        return Boolean.parseBoolean(commonProperties.get(HBaseToolsOptions.CommonOptions.COMMON_PROPERTY_SNAPSHOT_CACHE_ENABLE.getName()).getValue());
+    }
+
+    public String getSnapshotCacheDir() {
+        return commonProperties.get(HBaseToolsOptions.CommonOptions.COMMON_PROPERTY_SNAPSHOT_CACHE_DIR.getName()).getValue();
+    }
+
+    public long getClusterMetricsStaleness() {
+        return Long.parseLong(commonProperties.get(HBaseToolsOptions.CommonOptions.COMMON_PROPERTY_CLUSTER_METRICS_STALENESS.getName()).getValue());
+    }
+
+    public boolean isVirtualThreadsEnable() {
+        return Boolean.parseBoolean(commonProperties.get(HBaseToolsOptions.CommonOptions.COMMON_PROPERTY_VIRTUAL_THREADS_ENABLE.getName()).getValue());
+    }
+
+    public boolean isAsyncAdminEnable() {
+        return Boolean.parseBoolean(commonProperties.get(HBaseToolsOptions.CommonOptions.COMMON_PROPERTY_ASYNC_ADMIN_ENABLE.getName()).getValue());
+    }
+
+    public int getAsyncAdminMaxInFlight() {
+        return Integer.parseInt(commonProperties.get(HBaseToolsOptions.CommonOptions.COMMON_PROPERTY_ASYNC_ADMIN_MAX_IN_FLIGHT.getName()).getValue());
+    }
 }
@@ -109,5 +109,93 @@ public class CompactorSettings {
     public long getRefreshDelay() {
         return Long.parseLong(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_RS_REFRESH_DELAY.getName()).getValue());
     }
-}
 
+    /**
+     * @return max number of compactions running in the whole cluster, 0 means only per-server limits are used
+     */
+    public int getClusterParallelCompaction() {
+        return Integer.parseInt(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_CLUSTER_PARALLELISM.getName()).getValue());
+    }
+
+    public long getJmxRefreshDelay() {
+        return Long.parseLong(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_JMX_REFRESH_DELAY.getName()).getValue());
+    }
+
+    public boolean isAdaptiveEnable() {
+        return Boolean.parseBoolean(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_ADAPTIVE_ENABLE.getName()).getValue());
+    }
+
+    public int getAdaptiveMinCompactions() {
+        return Integer.parseInt(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_ADAPTIVE_MIN.getName()).getValue());
+    }
+
+    public int getAdaptiveMaxCompactions() {
+        return Integer.parseInt(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_ADAPTIVE_MAX.getName()).getValue());
+    }
+
+    /**
+     * @return target of the 99th percentile of Get, Put and Delete latency on the RegionServer, 0 disables the check
+     */
+    public long getAdaptiveLatencyTarget() {
+        return Long.parseLong(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_ADAPTIVE_LATENCY_TARGET.getName()).getValue());
+    }
+
+    public long getAdaptiveIncreasePeriod() {
+        return Long.parseLong(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_ADAPTIVE_PERIOD.getName()).getValue());
+    }
+
+    /**
+     * @return default, multi-factor or class name of a custom CompactionWeightModel
+     */
+    public String getWeightModel() {
+        return compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_WEIGHT_MODEL.getName()).getValue();
+    }
+
+    /**
+     * @return schedule of the infinite compaction, for example *=22:00-06:00;table:ns:events=Sat+Sun@00:00-00:00/500000
+     */
+    public String getCompactionWindows() {
+        return compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_WINDOWS.getName()).getValue();
+    }
+
+    /**
+     * @return file of the compaction history, empty value keeps the history only in memory
+     */
+    public String getHistoryFile() {
+        return compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_HISTORY_FILE.getName()).getValue();
+    }
+
+    public long getHistoryDedupPeriod() {
+        return Long.parseLong(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_HISTORY_DEDUP_PERIOD.getName()).getValue());
+    }
+
+    public long getHistoryTTL() {
+        return Long.parseLong(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_HISTORY_TTL.getName()).getValue());
+    }
+
+    /**
+     * @return weight - queued regions are taken by weight, cost-aware - by weight per predicted compaction time
+     */
+    public String getSchedulingPolicy() {
+        return compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_SCHEDULING_POLICY.getName()).getValue();
+    }
+
+    public int getLargeRegionMb() {
+        return Integer.parseInt(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_LARGE_REGION_MB.getName()).getValue());
+    }
+
+    public int getSmallReservedSlots() {
+        return Integer.parseInt(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_SMALL_RESERVED_SLOTS.getName()).getValue());
+    }
+
+    public long getMaxWait() {
+        return Long.parseLong(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_MAX_WAIT.getName()).getValue());
+    }
+
+    /**
+     * @return max number of regions queued for one RegionServer by the lightweight compactor
+     */
+    public int getQueueCapacity() {
+        return Integer.parseInt(compactorProperties.get(HBaseToolsOptions.CompactorOptions.COMPACTOR_PROPERTY_QUEUE_CAPACITY.getName()).getValue());
+    }
+}
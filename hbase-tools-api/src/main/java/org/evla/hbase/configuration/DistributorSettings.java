@@ -42,6 +42,9 @@ public class DistributorSettings {
         return Integer.parseInt(distributorSettings.get(HBaseToolsOptions.DistributorOptions.DISTRIBUTOR_PROPERTY_THREADS.getName()).getValue());
     }
 
+    /**
+     * @return how long the distributor waits for a moved region to leave transition, in millis
+     */
     public int getDistributorRITTimeout() {
         return Integer.parseInt(distributorSettings.get(HBaseToolsOptions.DistributorOptions.DISTRIBUTOR_PROPERTY_RIT_TIMEOUT.getName()).getValue());
     }
@@ -15,9 +15,18 @@ public class HBaseToolsOptions {
         static final HBaseToolsProperty COMMON_PROPERTY_HDFS_SITE = new HBaseToolsProperty("hdfs.site", "/etc/hbase/conf/hdfs-site.xml", "");
         static final HBaseToolsProperty COMMON_PROPERTY_HBASE_SITE = new HBaseToolsProperty("hbase.site", "/etc/hbase/conf/hbase-site.xml", "");
 
+        static final HBaseToolsProperty COMMON_PROPERTY_SNAPSHOT_CACHE_ENABLE = new HBaseToolsProperty("snapshot.cache.enable", "false", "");
+        static final HBaseToolsProperty COMMON_PROPERTY_SNAPSHOT_CACHE_DIR = new HBaseToolsProperty("snapshot.cache.dir", "./snapshot-cache", "");
+        static final HBaseToolsProperty COMMON_PROPERTY_CLUSTER_METRICS_STALENESS = new HBaseToolsProperty("cluster.metrics.staleness.millis", "3000", "");
+        static final HBaseToolsProperty COMMON_PROPERTY_VIRTUAL_THREADS_ENABLE = new HBaseToolsProperty("virtual.threads.enable", "false", "");
+        static final HBaseToolsProperty COMMON_PROPERTY_ASYNC_ADMIN_ENABLE = new HBaseToolsProperty("async.admin.enable", "false", "");
+        static final HBaseToolsProperty COMMON_PROPERTY_ASYNC_ADMIN_MAX_IN_FLIGHT = new HBaseToolsProperty("async.admin.max.in.flight", "200", "");
+
         public static List<HBaseToolsProperty> getCommonOptions() {
             return Arrays.asList(COMMON_PROPERTY_PRINCIPAL, COMMON_PROPERTY_KEYTAB, COMMON_PROPERTY_CUSTOMIZE_LOGGING,
-                    COMMON_PROPERTY_CORE_SITE, COMMON_PROPERTY_HDFS_SITE, COMMON_PROPERTY_HBASE_SITE);
+                    COMMON_PROPERTY_CORE_SITE, COMMON_PROPERTY_HDFS_SITE, COMMON_PROPERTY_HBASE_SITE,
+                    COMMON_PROPERTY_SNAPSHOT_CACHE_ENABLE, COMMON_PROPERTY_SNAPSHOT_CACHE_DIR, COMMON_PROPERTY_CLUSTER_METRICS_STALENESS,
+                    COMMON_PROPERTY_VIRTUAL_THREADS_ENABLE, COMMON_PROPERTY_ASYNC_ADMIN_ENABLE, COMMON_PROPERTY_ASYNC_ADMIN_MAX_IN_FLIGHT);
         }
     }
 
@@ -57,12 +66,35 @@ public class HBaseToolsOptions {
         static final HBaseToolsProperty COMPACTOR_PROPERTY_WEIGHT_BORDER = new HBaseToolsProperty("compactor.border.weight", "15", "");
         static final HBaseToolsProperty COMPACTOR_PROPERTY_RECALCULATE_REGION_COUNT = new HBaseToolsProperty("compactor.recalculate.region.count", "15", "");
         static final HBaseToolsProperty COMPACTOR_PROPERTY_RS_REFRESH_DELAY = new HBaseToolsProperty("compactor.rs.refresh.delay", "90000", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_CLUSTER_PARALLELISM = new HBaseToolsProperty("compactor.cluster.parallel.compactions", "0", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_JMX_REFRESH_DELAY = new HBaseToolsProperty("compactor.jmx.refresh.delay", "2000", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_ADAPTIVE_ENABLE = new HBaseToolsProperty("compactor.adaptive.enable", "false", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_ADAPTIVE_MIN = new HBaseToolsProperty("compactor.adaptive.min.compactions", "1", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_ADAPTIVE_MAX = new HBaseToolsProperty("compactor.adaptive.max.compactions", "6", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_ADAPTIVE_LATENCY_TARGET = new HBaseToolsProperty("compactor.adaptive.latency.target.ms", "100", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_ADAPTIVE_PERIOD = new HBaseToolsProperty("compactor.adaptive.increase.period", "60000", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_WEIGHT_MODEL = new HBaseToolsProperty("compactor.weight.model", "default", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_WINDOWS = new HBaseToolsProperty("compactor.windows", "", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_HISTORY_FILE = new HBaseToolsProperty("compactor.history.file", "./compaction-history.dat", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_HISTORY_DEDUP_PERIOD = new HBaseToolsProperty("compactor.history.dedup.period", "86400000", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_HISTORY_TTL = new HBaseToolsProperty("compactor.history.ttl", "604800000", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_SCHEDULING_POLICY = new HBaseToolsProperty("compactor.scheduling.policy", "weight", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_LARGE_REGION_MB = new HBaseToolsProperty("compactor.large.region.mb", "10240", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_SMALL_RESERVED_SLOTS = new HBaseToolsProperty("compactor.small.reserved.slots", "1", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_MAX_WAIT = new HBaseToolsProperty("compactor.max.wait.millis", "21600000", "");
+        static final HBaseToolsProperty COMPACTOR_PROPERTY_QUEUE_CAPACITY = new HBaseToolsProperty("compactor.queue.capacity", "10000", "");
 
         public static List<HBaseToolsProperty> getCompactorOptions() {
             return Arrays.asList(COMPACTOR_PROPERTY_PARALLELISM, COMPACTOR_PROPERTY_STATUS_DELAY, COMPACTOR_PROPERTY_ADDITIONAL_DELAY,
                     COMPACTOR_PROPERTY_ACTUALIZE_DELAY, COMPACTOR_PROPERTY_STORE_SIZE_MB, COMPACTOR_PROPERTY_JMX_PORTS,
                     COMPACTOR_PROPERTY_MAX_COMPACTIONS_BORDER, COMPACTOR_PROPERTY_MAX_FLUSHES_BORDER, COMPACTOR_PROPERTY_SORTING_ENABLE,
-                    COMPACTOR_PROPERTY_WEIGHT_BORDER, COMPACTOR_PROPERTY_RECALCULATE_REGION_COUNT, COMPACTOR_PROPERTY_RS_REFRESH_DELAY
+                    COMPACTOR_PROPERTY_WEIGHT_BORDER, COMPACTOR_PROPERTY_RECALCULATE_REGION_COUNT, COMPACTOR_PROPERTY_RS_REFRESH_DELAY,
+                    COMPACTOR_PROPERTY_CLUSTER_PARALLELISM, COMPACTOR_PROPERTY_JMX_REFRESH_DELAY, COMPACTOR_PROPERTY_ADAPTIVE_ENABLE,
+                    COMPACTOR_PROPERTY_ADAPTIVE_MIN, COMPACTOR_PROPERTY_ADAPTIVE_MAX, COMPACTOR_PROPERTY_ADAPTIVE_LATENCY_TARGET,
+                    COMPACTOR_PROPERTY_ADAPTIVE_PERIOD, COMPACTOR_PROPERTY_WEIGHT_MODEL, COMPACTOR_PROPERTY_WINDOWS,
+                    COMPACTOR_PROPERTY_HISTORY_FILE, COMPACTOR_PROPERTY_HISTORY_DEDUP_PERIOD, COMPACTOR_PROPERTY_HISTORY_TTL,
+                    COMPACTOR_PROPERTY_SCHEDULING_POLICY, COMPACTOR_PROPERTY_LARGE_REGION_MB, COMPACTOR_PROPERTY_SMALL_RESERVED_SLOTS,
+                    COMPACTOR_PROPERTY_MAX_WAIT, COMPACTOR_PROPERTY_QUEUE_CAPACITY
             );
         }
     }
@@ -79,7 +111,7 @@ public class HBaseToolsOptions {
     public static class DistributorOptions {
         static final HBaseToolsProperty DISTRIBUTOR_PROPERTY_REGION_WEIGHT_BORDER = new HBaseToolsProperty("distributor.region.weight.border", "5", "");
         static final HBaseToolsProperty DISTRIBUTOR_PROPERTY_THREADS = new HBaseToolsProperty("distributor.threads", "3", "");
-        static final HBaseToolsProperty DISTRIBUTOR_PROPERTY_RIT_TIMEOUT = new HBaseToolsProperty("distributor.rit.timeout", "3000", "");
+        static final HBaseToolsProperty DISTRIBUTOR_PROPERTY_RIT_TIMEOUT = new HBaseToolsProperty("distributor.rit.timeout", "600000", "");
         static final HBaseToolsProperty DISTRIBUTOR_PROPERTY_COMPACT = new HBaseToolsProperty("distributor.compact", "true", "");
         static final HBaseToolsProperty DISTRIBUTOR_PROPERTY_RECALCULATE_TABLE_COUNT = new HBaseToolsProperty("distributor.recalculate.table.count", "15", "");
 
@@ -117,9 +149,19 @@ public class HBaseToolsOptions {
         static final HBaseToolsProperty TECHNICAL_META_PROPERTY_TABLE_TTL = new HBaseToolsProperty("technical.meta.table.ttl.sec", "2592000", "");
         static final HBaseToolsProperty TECHNICAL_META_PROPERTY_TABLE_RECORD_TTL = new HBaseToolsProperty("technical.meta.table.record.ttl.millis", "604800000", "");
         static final HBaseToolsProperty TECHNICAL_META_PROPERTY_SCAN_PERIOD = new HBaseToolsProperty("technical.meta.scan.period.sec", "3600", "");
+        static final HBaseToolsProperty TECHNICAL_META_PROPERTY_BLOB_STORAGE_ENABLE = new HBaseToolsProperty("technical.meta.blob.storage.enable", "false", "");
+        static final HBaseToolsProperty TECHNICAL_META_PROPERTY_BLOB_CHUNK_REGIONS = new HBaseToolsProperty("technical.meta.blob.chunk.regions", "50000", "");
+        static final HBaseToolsProperty TECHNICAL_META_PROPERTY_BLOB_CHUNK_MAX_BYTES = new HBaseToolsProperty("technical.meta.blob.chunk.max.bytes", "1048576", "");
+        static final HBaseToolsProperty TECHNICAL_META_PROPERTY_RESTORE_MOVES_PER_SECOND = new HBaseToolsProperty("technical.meta.restore.moves.per.second", "20", "");
+        static final HBaseToolsProperty TECHNICAL_META_PROPERTY_RESTORE_SERVER_PARALLELISM = new HBaseToolsProperty("technical.meta.restore.server.parallelism", "4", "");
+        static final HBaseToolsProperty TECHNICAL_META_PROPERTY_RESTORE_MOVE_TIMEOUT = new HBaseToolsProperty("technical.meta.restore.move.timeout.millis", "120000", "");
+        static final HBaseToolsProperty TECHNICAL_META_PROPERTY_RESTORE_STATUS_DELAY = new HBaseToolsProperty("technical.meta.restore.status.delay", "1000", "");
 
         public static List<HBaseToolsProperty> getTechnicalMetaSettings() {
-            return Arrays.asList(TECHNICAL_META_PROPERTY_ENABLE, TECHNICAL_META_PROPERTY_TABLE, TECHNICAL_META_PROPERTY_TABLE_TTL, TECHNICAL_META_PROPERTY_TABLE_RECORD_TTL, TECHNICAL_META_PROPERTY_SCAN_PERIOD);
+            return Arrays.asList(TECHNICAL_META_PROPERTY_ENABLE, TECHNICAL_META_PROPERTY_TABLE, TECHNICAL_META_PROPERTY_TABLE_TTL, TECHNICAL_META_PROPERTY_TABLE_RECORD_TTL, TECHNICAL_META_PROPERTY_SCAN_PERIOD,
+                    TECHNICAL_META_PROPERTY_BLOB_STORAGE_ENABLE, TECHNICAL_META_PROPERTY_BLOB_CHUNK_REGIONS, TECHNICAL_META_PROPERTY_BLOB_CHUNK_MAX_BYTES,
+                    TECHNICAL_META_PROPERTY_RESTORE_MOVES_PER_SECOND, TECHNICAL_META_PROPERTY_RESTORE_SERVER_PARALLELISM,
+                    TECHNICAL_META_PROPERTY_RESTORE_MOVE_TIMEOUT, TECHNICAL_META_PROPERTY_RESTORE_STATUS_DELAY);
         }
     }
 
@@ -55,4 +55,36 @@ public class TechnicalMetaSettings {
     public boolean isTechnicalMetaEnable() {
         return Boolean.parseBoolean(technicalSettings.get(HBaseToolsOptions.TechnicalMetaOptions.TECHNICAL_META_PROPERTY_ENABLE.getName()).getValue());
     }
+
+    public boolean isTechnicalMetaBlobStorageEnable() {
+        return Boolean.parseBoolean(technicalSettings.get(HBaseToolsOptions.TechnicalMetaOptions.TECHNICAL_META_PROPERTY_BLOB_STORAGE_ENABLE.getName()).getValue());
+    }
+
+    public int getTechnicalMetaBlobChunkRegions() {
+        return Integer.parseInt(technicalSettings.get(HBaseToolsOptions.TechnicalMetaOptions.TECHNICAL_META_PROPERTY_BLOB_CHUNK_REGIONS.getName()).getValue());
+    }
+
+    public int getTechnicalMetaBlobChunkMaxBytes() {
+        return Integer.parseInt(technicalSettings.get(HBaseToolsOptions.TechnicalMetaOptions.TECHNICAL_META_PROPERTY_BLOB_CHUNK_MAX_BYTES.getName()).getValue());
+    }
+
+    public double getRestoreMovesPerSecond() {
+        double movesPerSecond = Double.parseDouble(technicalSettings.get(HBaseToolsOptions.TechnicalMetaOptions.TECHNICAL_META_PROPERTY_RESTORE_MOVES_PER_SECOND.getName()).getValue());
+        if (!(movesPerSecond > 0)) {
+            throw new IllegalArgumentException("Restore moves per second must be positive: " + movesPerSecond);
+        }
+        return movesPerSecond;
+    }
+
+    public int getRestoreServerParallelism() {
+        return Integer.parseInt(technicalSettings.get(HBaseToolsOptions.TechnicalMetaOptions.TECHNICAL_META_PROPERTY_RESTORE_SERVER_PARALLELISM.getName()).getValue());
+    }
+
+    public long getRestoreMoveTimeout() {
+        return Long.parseLong(technicalSettings.get(HBaseToolsOptions.TechnicalMetaOptions.TECHNICAL_META_PROPERTY_RESTORE_MOVE_TIMEOUT.getName()).getValue());
+    }
+
+    public long getRestoreStatusDelay() {
+        return Long.parseLong(technicalSettings.get(HBaseToolsOptions.TechnicalMetaOptions.TECHNICAL_META_PROPERTY_RESTORE_STATUS_DELAY.getName()).getValue());
+    }
 }
@@ -1,9 +1,9 @@
 package org.evla.hbase.distributor;
 
-import org.apache.hadoop.hbase.ClusterStatus;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.compactor.LightweightCompactor;
 import org.evla.hbase.configuration.HBaseToolsSettings;
 import org.evla.hbase.meta.MetaTableHolder;
@@ -12,6 +12,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -26,25 +28,31 @@ public class Distributor {
     private final int threads;
     private final int regionsWeightBorder;
 
+    private final MetaTableHolder metaTableHolder;
     private volatile LightweightCompactor compactor = null;
 
     public Distributor(Admin admin, HBaseToolsSettings settings) {
+        this(admin, settings, new MetaTableHolder());
+    }
+
+    public Distributor(Admin admin, HBaseToolsSettings settings, MetaTableHolder metaTableHolder) {
         this.admin = admin;
         this.settings = settings;
+        this.metaTableHolder = metaTableHolder;
         this.regionsWeightBorder = settings.getDistributorSettings().getRegionWeightBorder();
         this.threads = settings.getDistributorSettings().getDistributorThreads();
         this.needCompact = settings.getDistributorSettings().isCompactAfterDistribute();
     }
 
-    public Distributor(Admin admin, HBaseToolsSettings settings, LightweightCompactor compactor) {
-        this(admin, settings);
+    public Distributor(Admin admin, HBaseToolsSettings settings, MetaTableHolder metaTableHolder, LightweightCompactor compactor) {
+        this(admin, settings, metaTableHolder);
         this.compactor = compactor;
     }
 
     public boolean runInChain(TableName table) {
         initCompactor();
         try {
-            return runDistribution(admin.getClusterStatus(), table);
+            return runDistribution(ClusterMetricsProvider.getInstance(admin).getServers(), table);
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
             return false;
@@ -54,7 +62,7 @@ public class Distributor {
     public void run(TableName table) {
         initCompactor();
         try {
-            runDistribution(admin.getClusterStatus(), table);
+            runDistribution(ClusterMetricsProvider.getInstance(admin).getServers(), table);
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
         }
@@ -68,17 +76,18 @@ public class Distributor {
     }
 
     private void runDistributions(String tableMask) {
+        // own pool instead of the common one, its parallelism can not be changed once it is created
+        ForkJoinPool pool = new ForkJoinPool(threads);
         try {
-            System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", String.valueOf(threads));
             TableName[] tables = admin.listTableNames(Pattern.compile(tableMask));
             LOGGER.info("Start distribution");
-            ClusterStatus clusterStatus = admin.getClusterStatus();
+            Collection<ServerName> servers = ClusterMetricsProvider.getInstance(admin).getServers();
             if (tables != null && tables.length < 11) {
-                Arrays.stream(tables).parallel().forEach(t -> runDistribution(clusterStatus, t));
+                pool.submit(() -> Arrays.stream(tables).parallel().forEach(t -> runDistribution(servers, t))).get();
             } else if (tables != null) {
                 List<DistributeTableWeight> tableWeights = new ArrayList<>();
                 LOGGER.info("Start analyzing hbase:meta");
-                Map<TableName, Map<ServerName, List<String>>> tableDistributions = new MetaTableHolder().getTablesDistribution(admin.getConnection(), admin.getClusterStatus().getServers());
+                Map<TableName, Map<ServerName, List<String>>> tableDistributions = metaTableHolder.getTablesDistribution(admin.getConnection(), servers);
                 for (TableName t : tables) {
                     if (tableDistributions.get(t) == null) {
                         LOGGER.info("Distribution of {} is unknown", t);
@@ -92,19 +101,24 @@ public class Distributor {
                 tableWeights.sort(Collections.reverseOrder());
                 LOGGER.info("There are {} tables that will be distributed. Average distributed weight is {}", tableWeights.size(), tableWeights.stream().map(DistributeTableWeight::getTableWeight).collect(Collectors.averagingDouble(Float::doubleValue)));
 
-                tableWeights.parallelStream().forEach((weight) -> {
+                pool.submit(() -> tableWeights.parallelStream().forEach((weight) -> {
                     LOGGER.info("Table {}: {}", weight.getTableName(), weight.getTableWeight());
-                    runDistribution(clusterStatus, weight.getTableName());
-                });
+                    runDistribution(servers, weight.getTableName());
+                })).get();
             }
-        } catch (IOException e) {
+        } catch (InterruptedException e) {
+            LOGGER.error(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        } catch (IOException | ExecutionException e) {
             LOGGER.error(e.getMessage(), e);
+        } finally {
+            pool.shutdown();
         }
     }
 
     private synchronized void initCompactor() {
         if (needCompact && compactor == null) {
-            compactor = new LightweightCompactor(admin, settings);
+            compactor = new LightweightCompactor(admin, settings, metaTableHolder);
         }
     }
 
@@ -115,7 +129,7 @@ public class Distributor {
         }
     }
 
-    private boolean runDistribution(ClusterStatus clusterStatus, TableName table) {
+    private boolean runDistribution(Collection<ServerName> servers, TableName table) {
         try {
             LOGGER.info("Start table distribution: {}", table);
             if (admin.isTableDisabled(table)) {
@@ -123,7 +137,6 @@ public class Distributor {
                 return false;
             }
 
-            Collection<ServerName> servers = clusterStatus.getServers();
             List<ServerName> serversList = new ArrayList<>(servers);
             LOGGER.info("There are {} servers in cluster", serversList.size());
 
@@ -3,6 +3,7 @@ package org.evla.hbase.distributor;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.rstask.RSTaskControllerHelper;
 import org.evla.hbase.compactor.LightweightCompactor;
 import org.evla.hbase.configuration.HBaseToolsSettings;
@@ -32,9 +33,9 @@ public class DistributorService {
 
     @SuppressWarnings("InfiniteLoopStatement")
     public void run() {
-        LightweightCompactor compactor = new LightweightCompactor(admin, settings);
-        Distributor distributor = new Distributor(admin, settings, compactor);
         MetaTableHolder holder = new MetaTableHolder();
+        LightweightCompactor compactor = new LightweightCompactor(admin, settings, holder);
+        Distributor distributor = new Distributor(admin, settings, holder, compactor);
         Executors.newSingleThreadScheduledExecutor().scheduleWithFixedDelay(() -> {
             synchronized (processedTables) {
                 LOGGER.info("Prepare to cleaning cached tables. Already processed {} tables", processedTables.size());
@@ -47,7 +48,7 @@ public class DistributorService {
                 try {
                     List<DistributeTableWeight> tableWeights = new ArrayList<>();
                     LOGGER.info("Start analyzing hbase:meta");
-                    Map<TableName, Map<ServerName, List<String>>> tableDistributions = holder.getTablesDistribution(admin.getConnection(), admin.getClusterStatus().getServers(), needUpdateMetaCache);
+                    Map<TableName, Map<ServerName, List<String>>> tableDistributions = holder.getTablesDistribution(admin.getConnection(), ClusterMetricsProvider.getInstance(admin).getServers(), needUpdateMetaCache);
                     needUpdateMetaCache = false;
                     for (TableName t : tableDistributions.keySet()) {
                         DistributeTableWeight weight = new DistributeTableWeight(t, tableDistributions.get(t));
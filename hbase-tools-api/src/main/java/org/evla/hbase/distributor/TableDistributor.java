@@ -6,7 +6,6 @@ import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.RegionLocator;
-import org.apache.hadoop.hbase.master.RegionState;
 import org.evla.hbase.rstask.RSTaskControllerHelper;
 import org.evla.hbase.compactor.Compactor;
 import org.evla.hbase.configuration.HBaseToolsSettings;
@@ -15,7 +14,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class TableDistributor {
     private static final Logger LOGGER = LoggerFactory.getLogger(TableDistributor.class);
@@ -114,21 +112,6 @@ public class TableDistributor {
     }
 
     private void waitMoving(List<HRegionInfo> regions) throws IOException {
-        while (true) {
-            Map<String, RegionState> states = RSTaskControllerHelper.getRegionsInTransitionMap(admin.getClusterMetrics());
-            List<String> regionsNames = regions.stream().map(HRegionInfo::getEncodedName).collect(Collectors.toList());
-            boolean needWait = false;
-            for (String region : regionsNames) {
-                if (states.containsKey(region)) {
-                    RSTaskControllerHelper.sleep(settings.getDistributorSettings().getDistributorRITTimeout());
-                    needWait = true;
-                    break;
-                }
-            }
-            if (!needWait) {
-                break;
-            }
-        }
-
+        RSTaskControllerHelper.waitWhileInTransition(admin, regions, settings.getDistributorSettings().getDistributorRITTimeout());
     }
 }
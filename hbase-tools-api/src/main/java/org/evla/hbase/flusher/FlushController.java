@@ -1,13 +1,17 @@
 package org.evla.hbase.flusher;
 
-import org.apache.hadoop.hbase.ClusterStatus;
-import org.apache.hadoop.hbase.RegionLoad;
-import org.apache.hadoop.hbase.ServerLoad;
+import org.apache.hadoop.hbase.ClusterMetrics;
+import org.apache.hadoop.hbase.RegionMetrics;
+import org.apache.hadoop.hbase.ServerMetrics;
 import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.Size;
 import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.ClusterTaskController;
+import org.evla.hbase.ToolsThreads;
 import org.evla.hbase.rstask.RSTask;
 import org.evla.hbase.rstask.RSTaskController;
+import org.evla.hbase.rstask.RegionOperations;
 import org.evla.hbase.configuration.HBaseToolsSettings;
 import org.evla.hbase.tasks.FlushTask;
 import org.slf4j.Logger;
@@ -16,6 +20,7 @@ import org.evla.hbase.rstask.RSTaskControllerHelper;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.Supplier;
 
 public class FlushController extends ClusterTaskController<Void> {
@@ -33,29 +38,86 @@ public class FlushController extends ClusterTaskController<Void> {
 
     @Override
     public void initTasks(Map<ServerName, RSTaskController<Void>> controllers) {
+        Map<ServerName, List<FlushTask>> tasks = getFlushTasks();
+        controllers.values().forEach(c -> {
+            List<? extends RSTask<Void>> taskList = tasks.get(c.getServerName());
+            if (taskList != null) {
+                c.addAllTask(taskList);
+            }
+        });
+    }
+
+    /**
+     * Flushes the regions without a thread per request: every server has as many chains of flushes as the
+     * flusher threads setting, the next flush of a chain is sent when the previous one is completed.
+     */
+    void flush(RegionOperations operations) {
+        LOGGER.info("Start {}", type());
+        // a single sender thread waits for free request slots, so RPC callback threads are never blocked
+        ExecutorService sender = Executors.newSingleThreadExecutor(ToolsThreads.newThreadFactory("flush-sender-%d", true));
+        List<CompletableFuture<Void>> chains = new ArrayList<>();
+        getFlushTasks().forEach((sn, tasks) -> {
+            if (tasks.isEmpty()) {
+                return;
+            }
+            LOGGER.info("{}: {} regions for flush", sn, tasks.size());
+            Queue<FlushTask> queue = new ConcurrentLinkedQueue<>(tasks);
+            for (int i = 0; i < Math.min(threads, tasks.size()); i++) {
+                chains.add(CompletableFuture.supplyAsync(() -> flushNext(operations, queue, sender), sender).thenCompose(c -> c));
+            }
+        });
+        try {
+            CompletableFuture.allOf(chains.toArray(new CompletableFuture<?>[0])).get();
+        } catch (InterruptedException e) {
+            LOGGER.error(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error(e.getMessage(), e);
+        } finally {
+            sender.shutdownNow();
+        }
+        LOGGER.info("Stop {}", type());
+    }
+
+    private CompletableFuture<Void> flushNext(RegionOperations operations, Queue<FlushTask> queue, Executor sender) {
+        FlushTask task = queue.poll();
+        if (task == null || Thread.currentThread().isInterrupted()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String region = new String(task.getRegionName());
+        LOGGER.info("Start flushing {} region ({} mb)", region, task.getMemStoreSize());
+        return operations.flush(task.getRegionName())
+                .handle((v, e) -> {
+                    if (e != null) {
+                        LOGGER.error("Region " + region + " is not flushed: " + e.getMessage(), e);
+                    } else {
+                        LOGGER.info("Stop flushing region {}", region);
+                    }
+                    return null;
+                })
+                .thenComposeAsync(v -> flushNext(operations, queue, sender), sender);
+    }
+
+    private Map<ServerName, List<FlushTask>> getFlushTasks() {
+        Map<ServerName, List<FlushTask>> tasks = new HashMap<>();
         try {
-            Map<ServerName, List<FlushTask>> tasks = new HashMap<>();
-            ClusterStatus status = admin.getClusterStatus();
-            for (ServerName sn : status.getServers()) {
+            ClusterMetrics metrics = ClusterMetricsProvider.getInstance(admin).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.LIVE_SERVERS));
+            for (Map.Entry<ServerName, ServerMetrics> server : metrics.getLiveServerMetrics().entrySet()) {
+                ServerName sn = server.getKey();
                 tasks.putIfAbsent(sn, new ArrayList<>());
                 if (servers == null || servers.contains(sn)) {
-                    ServerLoad serverLoad = status.getLoad(sn);
-                    for (Map.Entry<byte[], RegionLoad> entry : serverLoad.getRegionsLoad().entrySet()) {
-                        RegionLoad load = entry.getValue();
-                        if (load.getMemStoreSizeMB() > memoryBorder)
-                            tasks.get(sn).add(new FlushTask(admin, load.getName(), load.getMemStoreSizeMB()));
+                    for (RegionMetrics load : server.getValue().getRegionMetrics().values()) {
+                        int memStoreSizeMb = (int) load.getMemStoreSize().get(Size.Unit.MEGABYTE);
+                        if (memStoreSizeMb > memoryBorder)
+                            tasks.get(sn).add(new FlushTask(admin, load.getRegionName(), memStoreSizeMb));
                     }
                 }
             }
             tasks.values().forEach(tl -> tl.sort(Collections.reverseOrder()));
-
-            controllers.values().forEach(c -> {
-                List<? extends RSTask<Void>> taskList = tasks.get(c.getServerName());
-                c.addAllTask(taskList);
-            });
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
         }
+        return tasks;
     }
 
     @Override
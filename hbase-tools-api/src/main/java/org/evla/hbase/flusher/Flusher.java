@@ -2,7 +2,9 @@ package org.evla.hbase.flusher;
 
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.evla.hbase.rstask.RegionOperations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,7 +26,7 @@ public class Flusher {
 
     private void initServers(Admin admin) {
         try {
-            this.servers = new ArrayList<>(admin.getClusterStatus().getServers());
+            this.servers = new ArrayList<>(ClusterMetricsProvider.getInstance(admin).getServers());
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -49,7 +51,15 @@ public class Flusher {
         if (servers != null) {
             flushController.setServers(servers);
         }
-        flushController.start();
+        if (!settings.getCommonSettings().isAsyncAdminEnable()) {
+            flushController.start();
+            return;
+        }
+        try (RegionOperations operations = RegionOperations.create(admin, settings.getCommonSettings())) {
+            flushController.flush(operations);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
     }
 
 }
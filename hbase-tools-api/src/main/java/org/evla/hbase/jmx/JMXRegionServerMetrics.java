@@ -4,6 +4,7 @@ import org.apache.hadoop.hbase.ServerName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.AttributeNotFoundException;
 import javax.management.MBeanServerConnection;
 import javax.management.ObjectName;
 import javax.management.remote.JMXConnector;
@@ -47,6 +48,30 @@ public class JMXRegionServerMetrics implements Closeable {
         return getIntegerMBeanValue_double("percentFilesLocal");
     }
 
+    /**
+     * @param operation name of the operation histogram, for example Get or Put
+     * @return 99th percentile of the operation latency in milliseconds, 0 when the server has no such histogram
+     */
+    public Double getOperationLatency99th(String operation) {
+        if (jmxConnection != null) {
+            try {
+                return ((Number) jmxConnection.getAttribute(hbaseRSServer, operation + "_99th_percentile")).doubleValue();
+            } catch (AttributeNotFoundException e) {
+                // the histogram is created on the first operation, the connection is fine
+                LOGGER.debug("No {} latency histogram: {}", operation, e.getMessage());
+                return (double) 0;
+            } catch (IOException e) {
+                LOGGER.error("Some Exception occurred: " + e.getMessage(), e);
+                jmxConnection = null;
+                return (double) 0;
+            } catch (Exception e) {
+                LOGGER.error("Some Exception occurred: " + e.getMessage(), e);
+                return (double) 0;
+            }
+        }
+        return (double) 0;
+    }
+
     private Integer getIntegerMBeanValue_int(String attribute) {
         if (jmxConnection != null) {
             try {
@@ -1,10 +1,13 @@
 package org.evla.hbase.merger;
 
-import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.ClusterMetrics;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.Size;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.ClusterTaskController;
 import org.evla.hbase.rstask.RSTaskController;
 import org.evla.hbase.rstask.RSTaskControllerHelper;
@@ -41,19 +44,20 @@ public class MergeController extends ClusterTaskController<Void> {
         ConcurrentMap<TableName, AtomicLong> tablesSize = new ConcurrentHashMap<>();
 
         try {
-            admin.getClusterStatus().getServers().parallelStream().forEach(sn -> {
+            ClusterMetrics metrics = ClusterMetricsProvider.getInstance(admin).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.LIVE_SERVERS));
+            metrics.getLiveServerMetrics().keySet().parallelStream().forEach(sn -> {
                 try {
                     allSmallRegions.putIfAbsent(sn, new TreeSet<>(Bytes.BYTES_COMPARATOR));
                     Set<byte[]> regions = allSmallRegions.get(sn);
-                    admin.getClusterStatus().getLoad(sn).getRegionsLoad().forEach((k, v) -> {
-                        TableName tn = HRegionInfo.getTable(v.getName());
+                    metrics.getLiveServerMetrics().get(sn).getRegionMetrics().forEach((k, v) -> {
+                        TableName tn = RegionInfo.getTable(v.getRegionName());
                         tablesSize.putIfAbsent(tn, new AtomicLong(0L));
                         tablesSize.get(tn).addAndGet(1);
-                        if (v.getStorefileSizeMB() <= mergeParams.getMinStorefileSize_mb()) {
-                            regions.add(v.getName());
+                        if (v.getStoreFileSize().get(Size.Unit.MEGABYTE) <= mergeParams.getMinStorefileSize_mb()) {
+                            regions.add(v.getRegionName());
                         }
                     });
-                } catch (IOException e) {
+                } catch (Exception e) {
                     LOGGER.error(e.getMessage(), e);
                     throw new RuntimeException("Analyze failed. Check all logs... " + e.getMessage(), e);
                 }
@@ -6,13 +6,18 @@ import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.client.SnapshotDescription;
 import org.apache.hadoop.hbase.master.RegionState;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.evla.hbase.rstask.RSTaskControllerHelper;
+import org.evla.hbase.rstask.RegionStateTracker;
 import org.evla.hbase.configuration.HBaseToolsSettings;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 
@@ -164,8 +169,8 @@ public class Merger {
     }
 
     private Map<String, RegionMetrics> getTableMetrics(TableName tableName) throws IOException {
-        Map<String, RegionMetrics> result = new HashMap<>();
-        ClusterMetrics metrics = admin.getClusterMetrics();
+        Map<String, RegionMetrics> result = new ConcurrentHashMap<>();
+        ClusterMetrics metrics = ClusterMetricsProvider.getInstance(admin).getClusterMetrics();
 
         Collection<ServerName> serverNames = metrics.getServersName();
         List<RegionInfo> regions = admin.getRegions(tableName);
@@ -266,14 +271,11 @@ public class Merger {
             for (int i = 0; i < MAX_RETRIES; i++) {
                 List<RegionInfo> mergedRegions = findNewRegions(oneStepRegions, tableRegions);
                 boolean isRegionsNotReady = false;
-                Map<String, RegionState> regionsInTransition = RSTaskControllerHelper.getRegionsInTransitionMap(admin.getClusterMetrics());
-                for (RegionInfo info : mergedRegions) {
-                    if (regionsInTransition.containsKey(info.getEncodedName())) {
-                        LOGGER.info("Not all regions ready. Waiting...");
-                        RSTaskControllerHelper.sleep(5_000);
-                        isRegionsNotReady = true;
-                        break;
-                    }
+                try {
+                    RegionStateTracker.getInstance(admin).whenOutOfTransition(mergedRegions).get(5_000, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    LOGGER.info("Not all regions ready. Waiting...");
+                    isRegionsNotReady = true;
                 }
                 if (!isRegionsNotReady && mergedRegions.size() == mergedRegionsSize) {
                     break;
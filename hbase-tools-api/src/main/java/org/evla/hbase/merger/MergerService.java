@@ -1,10 +1,12 @@
 package org.evla.hbase.merger;
 
-import org.apache.hadoop.hbase.ClusterStatus;
-import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.ClusterMetrics;
+import org.apache.hadoop.hbase.Size;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,19 +56,19 @@ public class MergerService {
         ConcurrentMap<TableName, TreeSet<byte[]>> allSmallRegions = new ConcurrentHashMap<>();
         ConcurrentMap<TableName, AtomicLong> tablesSize = new ConcurrentHashMap<>();
         try {
-            ClusterStatus status = admin.getClusterStatus();
-            status.getServers().parallelStream().forEach(sn -> {
+            ClusterMetrics metrics = ClusterMetricsProvider.getInstance(admin).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.LIVE_SERVERS));
+            metrics.getLiveServerMetrics().keySet().parallelStream().forEach(sn -> {
                 try {
-                    status.getLoad(sn).getRegionsLoad().forEach((k, v) -> {
-                        TableName tn = HRegionInfo.getTable(v.getName());
+                    metrics.getLiveServerMetrics().get(sn).getRegionMetrics().forEach((k, v) -> {
+                        TableName tn = RegionInfo.getTable(v.getRegionName());
                         if (tn.getNamespaceAsString().equals(namespace)) {
                             tablesSize.putIfAbsent(tn, new AtomicLong(0L));
                             tablesSize.get(tn).addAndGet(1);
                             allRegions.putIfAbsent(tn, new TreeSet<>(Bytes.BYTES_COMPARATOR));
-                            allRegions.get(tn).add(v.getName());
-                            if (v.getStorefileSizeMB() <= mergeParams.getMinStorefileSize_mb()) {
+                            allRegions.get(tn).add(v.getRegionName());
+                            if (v.getStoreFileSize().get(Size.Unit.MEGABYTE) <= mergeParams.getMinStorefileSize_mb()) {
                                 allSmallRegions.putIfAbsent(tn, new TreeSet<>(Bytes.BYTES_COMPARATOR));
-                                allSmallRegions.get(tn).add(v.getName());
+                                allSmallRegions.get(tn).add(v.getRegionName());
                             }
                         }
                     });
@@ -3,13 +3,12 @@ package org.evla.hbase.merger;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.evla.hbase.common.HBaseStaticHelper;
-import org.evla.hbase.compactor.Compactor;
 import org.evla.hbase.compactor.LightweightCompactor;
 import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.evla.hbase.meta.MetaTableHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.*;
 
 public class SafeMerger {
@@ -19,6 +18,8 @@ public class SafeMerger {
     private final Admin admin;
 
     private final Merger merger;
+    // one hbase:meta view for the compactors of all merged tables
+    private final MetaTableHolder metaTableHolder = new MetaTableHolder();
     private HBaseToolsSettings settings = null;
 
     public SafeMerger(Admin admin, QualityMerge qualityMerge, MergeParams mergeParams) {
@@ -43,10 +44,9 @@ public class SafeMerger {
 
         if (tn != null) {
             LOGGER.info("Compact copy table: {}", tn);
-            try (Compactor compactor = new LightweightCompactor(admin, settings)) {
+            try (LightweightCompactor compactor = new LightweightCompactor(admin, settings, metaTableHolder)) {
                 compactor.compactTables(Collections.singletonList(tn));
-            } catch (IOException e) {
-                LOGGER.error(e.getMessage(), e);
+                compactor.stopCompact();
             }
             LOGGER.info("Stop compacting copy table: {}", tn);
 
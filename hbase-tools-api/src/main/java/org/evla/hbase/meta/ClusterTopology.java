@@ -3,27 +3,75 @@ package org.evla.hbase.meta;
 import org.apache.hadoop.hbase.ServerName;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
+import static org.evla.hbase.meta.TopologyDictionary.ABSENT;
+
+/**
+ * Region to server mapping stored as an array of server ids indexed by region id, with a per-server sorted set of
+ * region ids. Names are resolved through a {@link TopologyDictionary}, by default an own one of the topology.
+ * Topologies on the same dictionary are compared by ids, others by names.
+ */
 public class ClusterTopology {
     public static final ClusterTopology EMPTY_TOPOLOGY = new ClusterTopology();
 
-    private final Map<String, Set<String>> cluster = new HashMap<>();
+    private final TopologyDictionary dictionary;
+    private int[] serverByRegion = new int[0];
+    private final List<RegionIdSet> regionsByServer = new ArrayList<>();
+    private int regionsCount = 0;
 
     public ClusterTopology() {
+        this(new TopologyDictionary());
+    }
+
+    public ClusterTopology(TopologyDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public void mapRegionWithServer(ServerName serverName, String regionName) {
+        mapRegionWithServer(serverName.getAddress().toString(), regionName);
+    }
+
+    public void mapRegionWithServer(String serverName, String regionName) {
+        mapRegionWithServer(dictionary.serverId(serverName), dictionary.regionId(regionName));
     }
 
-    public void mapRegionWithServer(ServerName serverName, String encodedRegionName) {
-        mapRegionWithServer(serverName.getAddress().toString(), encodedRegionName);
+    void mapRegionWithServer(int serverId, int regionId) {
+        if (regionId >= serverByRegion.length) {
+            int size = Math.max(regionId + 1, Math.max(16, serverByRegion.length + (serverByRegion.length >> 1)));
+            int from = serverByRegion.length;
+            serverByRegion = Arrays.copyOf(serverByRegion, size);
+            Arrays.fill(serverByRegion, from, size, ABSENT);
+        }
+        int previous = serverByRegion[regionId];
+        if (previous == ABSENT) {
+            regionsCount++;
+        } else {
+            regionsByServer.get(previous).remove(regionId);
+        }
+        serverByRegion[regionId] = serverId;
+        while (regionsByServer.size() <= serverId) {
+            regionsByServer.add(new RegionIdSet());
+        }
+        regionsByServer.get(serverId).add(regionId);
     }
 
-    public void mapRegionWithServer(String serverName, String encodedRegionName) {
-        Set<String> set = cluster.computeIfAbsent(serverName, k -> new HashSet<>());
-        set.add(encodedRegionName);
+    TopologyDictionary getDictionary() {
+        return dictionary;
+    }
+
+    int getServerId(int regionId) {
+        return regionId < serverByRegion.length ? serverByRegion[regionId] : ABSENT;
     }
 
     public Set<String> getAllServers() {
-        return cluster.keySet();
+        Set<String> result = new HashSet<>();
+        for (int id = 0; id < regionsByServer.size(); id++) {
+            if (!regionsByServer.get(id).isEmpty()) {
+                result.add(dictionary.serverName(id));
+            }
+        }
+        return result;
     }
 
     public Set<String> getAllRegions(ServerName serverName) {
@@ -31,42 +79,56 @@ public class ClusterTopology {
     }
 
     public Set<String> getAllRegions(String serverName) {
-        return cluster.get(serverName);
+        RegionIdSet regionIds = regionIds(dictionary.findServerId(serverName));
+        Set<String> result = new HashSet<>(regionIds.size());
+        regionIds.forEach(id -> result.add(dictionary.regionName(id)));
+        return result;
     }
 
-    public int getAllRegionsCount() {
-        AtomicInteger counter = new AtomicInteger(0);
-        for (Set<String> set : cluster.values()) {
-            counter.addAndGet(set.size());
+    public String getServer(String regionName) {
+        int regionId = dictionary.findRegionId(regionName);
+        int serverId = regionId == ABSENT ? ABSENT : getServerId(regionId);
+        return serverId == ABSENT ? null : dictionary.serverName(serverId);
+    }
+
+    public void forEachRegion(BiConsumer<String, String> serverAndRegionConsumer) {
+        for (int regionId = 0; regionId < serverByRegion.length; regionId++) {
+            if (serverByRegion[regionId] != ABSENT) {
+                serverAndRegionConsumer.accept(dictionary.serverName(serverByRegion[regionId]), dictionary.regionName(regionId));
+            }
         }
-        return counter.get();
     }
 
-    public static Difference calculateRegionsDiffForServer(ClusterTopology first, ClusterTopology second, ServerName serverName) {
-        Set<String> currentRegions = new HashSet<>(first.getAllRegions(serverName));
-        Set<String> previousRegions = new HashSet<>(second.getAllRegions(serverName));
+    public int getAllRegionsCount() {
+        return regionsCount;
+    }
 
-        currentRegions.removeAll(new HashSet<>(second.getAllRegions(serverName)));
-        previousRegions.removeAll(new HashSet<>(first.getAllRegions(serverName)));
+    private RegionIdSet regionIds(int serverId) {
+        return serverId == ABSENT || serverId >= regionsByServer.size() ? RegionIdSet.EMPTY : regionsByServer.get(serverId);
+    }
 
+    public static Difference calculateRegionsDiffForServer(ClusterTopology first, ClusterTopology second, ServerName serverName) {
+        String server = serverName.getAddress().toString();
         List<DiffRecord> diff = new ArrayList<>();
-        currentRegions.forEach(s -> diff.add(new DiffRecord(DiffType.IN, s)));
-        previousRegions.forEach(s -> diff.add(new DiffRecord(DiffType.OUT, s)));
-
+        if (first.dictionary == second.dictionary) {
+            int serverId = first.dictionary.findServerId(server);
+            RegionIdSet.diff(first.regionIds(serverId), second.regionIds(serverId),
+                    id -> diff.add(new DiffRecord(DiffType.IN, first.dictionary.regionName(id))),
+                    id -> diff.add(new DiffRecord(DiffType.OUT, first.dictionary.regionName(id))));
+        } else {
+            addDiff(diff, first.getAllRegions(server), second.getAllRegions(server));
+        }
         return Difference.ofRegions(diff);
     }
 
     public static Difference calculateServersDiff(ClusterTopology first, ClusterTopology second) {
-        Set<String> currentRegions = new HashSet<>(first.getAllServers());
-        Set<String> previousRegions = new HashSet<>(second.getAllServers());
-
-        currentRegions.removeAll(new HashSet<>(second.getAllServers()));
-        previousRegions.removeAll(new HashSet<>(first.getAllServers()));
-
         List<DiffRecord> diff = new ArrayList<>();
-        currentRegions.forEach(s -> diff.add(new DiffRecord(DiffType.IN, s)));
-        previousRegions.forEach(s -> diff.add(new DiffRecord(DiffType.OUT, s)));
-
+        addDiff(diff, first.getAllServers(), second.getAllServers());
         return Difference.ofRegionServers(diff);
     }
+
+    private static void addDiff(List<DiffRecord> diff, Set<String> current, Set<String> previous) {
+        current.stream().filter(name -> !previous.contains(name)).forEach(name -> diff.add(new DiffRecord(DiffType.IN, name)));
+        previous.stream().filter(name -> !current.contains(name)).forEach(name -> diff.add(new DiffRecord(DiffType.OUT, name)));
+    }
 }
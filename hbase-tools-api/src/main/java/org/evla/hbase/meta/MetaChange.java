@@ -0,0 +1,115 @@
+package org.evla.hbase.meta;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.RegionInfo;
+
+import java.util.*;
+
+public class MetaChange {
+    private final MetaChangeType type;
+    private final RegionInfo regionInfo;
+    private final ServerName source;
+    private final ServerName destination;
+
+    MetaChange(MetaChangeType type, RegionInfo regionInfo, ServerName source, ServerName destination) {
+        this.type = type;
+        this.regionInfo = regionInfo;
+        this.source = source;
+        this.destination = destination;
+    }
+
+    public MetaChangeType getType() {
+        return type;
+    }
+
+    public RegionInfo getRegionInfo() {
+        return regionInfo;
+    }
+
+    public String getEncodedRegionName() {
+        return regionInfo.getEncodedName();
+    }
+
+    public ServerName getSource() {
+        return source;
+    }
+
+    public ServerName getDestination() {
+        return destination;
+    }
+
+    @Override
+    public String toString() {
+        return "MetaChange{" +
+                "type=" + type +
+                ", region=" + regionInfo.getEncodedName() +
+                ", source=" + source +
+                ", destination=" + destination +
+                '}';
+    }
+
+    static List<MetaChange> fromDelta(MetaSnapshot previous, MetaDelta delta) {
+        List<MetaChange> changes = new ArrayList<>();
+        for (String encodedName : delta.getRemoved()) {
+            HRegionLocation old = previous.getRegionLocation(encodedName);
+            if (old == null) {
+                continue;
+            }
+            MetaChangeType type = delta.isSplitParent(encodedName)
+                    ? MetaChangeType.SPLIT
+                    : (delta.isMergeParent(encodedName) ? MetaChangeType.MERGED : MetaChangeType.CLOSED);
+            changes.add(new MetaChange(type, old.getRegion(), old.getServerName(), null));
+        }
+        for (Map.Entry<String, HRegionLocation> e : delta.getUpdated().entrySet()) {
+            HRegionLocation old = previous.getRegionLocation(e.getKey());
+            HRegionLocation current = e.getValue();
+            if (old == null) {
+                MetaChangeType type = delta.isMergedRegion(e.getKey()) ? MetaChangeType.MERGED : MetaChangeType.OPENED;
+                changes.add(new MetaChange(type, current.getRegion(), null, current.getServerName()));
+            } else {
+                MetaChange change = compareLocations(old, current);
+                if (change != null) {
+                    changes.add(change);
+                }
+            }
+        }
+        return changes;
+    }
+
+    static List<MetaChange> fromSnapshots(MetaSnapshot previous, MetaSnapshot current) {
+        List<MetaChange> changes = new ArrayList<>();
+        for (HRegionLocation old : previous.getAllLocations()) {
+            if (current.getRegionLocation(old.getRegion().getEncodedName()) == null) {
+                changes.add(new MetaChange(MetaChangeType.CLOSED, old.getRegion(), old.getServerName(), null));
+            }
+        }
+        for (HRegionLocation loc : current.getAllLocations()) {
+            HRegionLocation old = previous.getRegionLocation(loc.getRegion().getEncodedName());
+            if (old == null) {
+                changes.add(new MetaChange(MetaChangeType.OPENED, loc.getRegion(), null, loc.getServerName()));
+            } else {
+                MetaChange change = compareLocations(old, loc);
+                if (change != null) {
+                    changes.add(change);
+                }
+            }
+        }
+        return changes;
+    }
+
+    private static MetaChange compareLocations(HRegionLocation old, HRegionLocation current) {
+        String oldServer = old.getServerName() == null ? null : old.getServerName().getAddress().toString();
+        String currentServer = current.getServerName() == null ? null : current.getServerName().getAddress().toString();
+        if (Objects.equals(oldServer, currentServer)) {
+            return null;
+        }
+        if (currentServer == null) {
+            return new MetaChange(MetaChangeType.CLOSED, current.getRegion(), old.getServerName(), null);
+        }
+        if (oldServer == null) {
+            return new MetaChange(MetaChangeType.OPENED, current.getRegion(), null, current.getServerName());
+        }
+        return new MetaChange(MetaChangeType.MOVED, current.getRegion(), old.getServerName(), current.getServerName());
+    }
+}
@@ -0,0 +1,7 @@
+package org.evla.hbase.meta;
+
+@FunctionalInterface
+public interface MetaChangeListener {
+
+    void onChange(MetaChange change);
+}
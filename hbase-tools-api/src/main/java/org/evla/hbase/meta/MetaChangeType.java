@@ -0,0 +1,5 @@
+package org.evla.hbase.meta;
+
+public enum MetaChangeType {
+    OPENED, CLOSED, MOVED, SPLIT, MERGED
+}
@@ -0,0 +1,79 @@
+package org.evla.hbase.meta;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+
+import java.util.*;
+
+class MetaDelta {
+    private final long timestamp;
+    private long watermark;
+
+    private final Map<String, HRegionLocation> updated = new HashMap<>();
+    private final Set<String> removed = new HashSet<>();
+    private final Set<String> splitParents = new HashSet<>();
+    private final Set<String> mergeParents = new HashSet<>();
+    private final Set<String> mergedRegions = new HashSet<>();
+
+    MetaDelta(long timestamp, long watermark) {
+        this.timestamp = timestamp;
+        this.watermark = watermark;
+    }
+
+    void updateWatermark(long cellTimestamp) {
+        watermark = Math.max(watermark, cellTimestamp);
+    }
+
+    void addUpdated(String encodedRegionName, HRegionLocation location) {
+        updated.put(encodedRegionName, location);
+        removed.remove(encodedRegionName);
+    }
+
+    void addRemoved(String encodedRegionName) {
+        if (!updated.containsKey(encodedRegionName)) {
+            removed.add(encodedRegionName);
+        }
+    }
+
+    void addSplitParent(String encodedRegionName) {
+        splitParents.add(encodedRegionName);
+        addRemoved(encodedRegionName);
+    }
+
+    void addMerge(String mergedRegion, String parentRegion) {
+        mergedRegions.add(mergedRegion);
+        mergeParents.add(parentRegion);
+        addRemoved(parentRegion);
+    }
+
+    boolean isEmpty() {
+        return updated.isEmpty() && removed.isEmpty();
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    long getWatermark() {
+        return watermark;
+    }
+
+    Map<String, HRegionLocation> getUpdated() {
+        return updated;
+    }
+
+    Set<String> getRemoved() {
+        return removed;
+    }
+
+    boolean isSplitParent(String encodedRegionName) {
+        return splitParents.contains(encodedRegionName);
+    }
+
+    boolean isMergeParent(String encodedRegionName) {
+        return mergeParents.contains(encodedRegionName);
+    }
+
+    boolean isMergedRegion(String encodedRegionName) {
+        return mergedRegions.contains(encodedRegionName);
+    }
+}
@@ -0,0 +1,131 @@
+package org.evla.hbase.meta;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read throughput of a {@link MetaTableHolder} with many concurrent reporters while its snapshot is swapped.
+ * A synthetic hbase:meta is published into a holder; a writer moves a few regions and publishes a new snapshot
+ * every refresh period, readers look up region locations, regions of a server and regions of a table on the
+ * current snapshot. The run is repeated with 1, 2, 4 ... readers up to the given count.
+ */
+public class MetaReadBenchmark {
+    private static final int SERVERS = 300;
+    private static final int TABLES = 500;
+    private static final int MOVES_PER_REFRESH = 20;
+    private static final long REFRESH_PERIOD = 100;
+    private static final long SEED = 20240501L;
+
+    private final List<HRegionLocation> locations;
+    private final String[] encodedNames;
+    private final List<ServerName> servers = new ArrayList<>();
+    private final List<TableName> tables = new ArrayList<>();
+
+    public MetaReadBenchmark(int regionsCount) {
+        if (regionsCount <= 0) {
+            throw new IllegalArgumentException("Regions count must be positive: " + regionsCount);
+        }
+        for (int i = 0; i < SERVERS; i++) {
+            servers.add(ServerName.valueOf("rs-" + i + ".example", 16020, 1L));
+        }
+        for (int i = 0; i < TABLES; i++) {
+            tables.add(TableName.valueOf("ns", "table_" + i));
+        }
+        this.locations = new ArrayList<>(regionsCount);
+        this.encodedNames = new String[regionsCount];
+        for (int i = 0; i < regionsCount; i++) {
+            RegionInfo info = RegionInfoBuilder.newBuilder(tables.get(i % TABLES))
+                    .setStartKey(Bytes.toBytes(i))
+                    .setEndKey(Bytes.toBytes(i + 1))
+                    .setRegionId(1L)
+                    .build();
+            locations.add(new HRegionLocation(info, servers.get(i % SERVERS), 1L));
+            encodedNames[i] = info.getEncodedName();
+        }
+    }
+
+    /**
+     * @return report, one line per readers count
+     */
+    public String run(int maxReaders, long secondsPerStep) throws InterruptedException {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d regions on %d servers in %d tables, %d moves every %d ms, %d s per step%n",
+                locations.size(), SERVERS, TABLES, MOVES_PER_REFRESH, REFRESH_PERIOD, secondsPerStep));
+        report.append(String.format("%8s %16s %16s %10s%n", "readers", "reads/s", "reads/s/reader", "swaps"));
+        LongAdder sink = new LongAdder();
+        int readers = 0;
+        while (readers < maxReaders) {
+            readers = Math.min(maxReaders, Math.max(1, readers * 2));
+            report.append(step(readers, TimeUnit.SECONDS.toMillis(secondsPerStep), sink));
+        }
+        report.append(String.format("checksum %d%n", sink.sum()));
+        return report.toString();
+    }
+
+    private String step(int readers, long duration, LongAdder sink) throws InterruptedException {
+        MetaTableHolder holder = new MetaTableHolder();
+        holder.publish(MetaSnapshot.of(System.currentTimeMillis(), 0L, locations));
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        LongAdder reads = new LongAdder();
+        LongAdder swaps = new LongAdder();
+
+        ExecutorService pool = Executors.newFixedThreadPool(readers + 1);
+        pool.execute(() -> {
+            Random random = new Random(SEED);
+            while (!stopped.get()) {
+                MetaSnapshot current = holder.getSnapshot();
+                MetaDelta delta = new MetaDelta(System.currentTimeMillis(), current.getWatermark());
+                for (int i = 0; i < MOVES_PER_REFRESH; i++) {
+                    HRegionLocation loc = current.getRegionLocation(encodedNames[random.nextInt(encodedNames.length)]);
+                    delta.addUpdated(loc.getRegion().getEncodedName(), new HRegionLocation(loc.getRegion(), servers.get(random.nextInt(SERVERS)), loc.getSeqNum() + 1));
+                }
+                holder.publish(current.apply(delta));
+                swaps.increment();
+                try {
+                    Thread.sleep(REFRESH_PERIOD);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        });
+        for (int r = 0; r < readers; r++) {
+            long seed = SEED + r;
+            pool.execute(() -> {
+                Random random = new Random(seed);
+                long done = 0;
+                long found = 0;
+                while (!stopped.get()) {
+                    MetaSnapshot snapshot = holder.getSnapshot();
+                    int op = random.nextInt(100);
+                    if (op < 80) {
+                        found += snapshot.getRegionLocation(encodedNames[random.nextInt(encodedNames.length)]) == null ? 0 : 1;
+                    } else if (op < 95) {
+                        found += snapshot.getRegions(servers.get(random.nextInt(SERVERS))).size();
+                    } else {
+                        found += snapshot.getTableRegions(tables.get(random.nextInt(TABLES))).size();
+                    }
+                    done++;
+                }
+                reads.add(done);
+                // read results are folded into the checksum, so the JIT can not drop the lookups
+                sink.add(found);
+            });
+        }
+        Thread.sleep(duration);
+        stopped.set(true);
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        double perSecond = reads.sum() * 1000.0 / duration;
+        return String.format("%8d %16.0f %16.0f %10d%n", readers, perSecond, perSecond / readers, swaps.sum());
+    }
+}
@@ -0,0 +1,234 @@
+package org.evla.hbase.meta;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.RegionInfo;
+
+import java.util.*;
+
+/**
+ * Immutable view of hbase:meta built from a single scan.
+ * Regions are indexed by RegionServer (host and port), by table and by encoded region name.
+ */
+public class MetaSnapshot {
+    public static final MetaSnapshot EMPTY = new MetaSnapshot(0L, 0L, 0L, Collections.emptyList());
+
+    private final long version;
+    private final long timestamp;
+    private final long watermark;
+
+    private final Map<String, Set<RegionInfo>> regionsByServer;
+    private final Map<TableName, List<HRegionLocation>> regionsByTable;
+    private final Map<String, HRegionLocation> regionsByEncodedName;
+    private final Set<RegionInfo> allRegions;
+
+    private MetaSnapshot(long version, long timestamp, long watermark, Collection<HRegionLocation> locations) {
+        this.version = version;
+        this.timestamp = timestamp;
+        this.watermark = watermark;
+
+        Map<String, Set<RegionInfo>> byServer = new HashMap<>();
+        Map<TableName, List<HRegionLocation>> byTable = new HashMap<>();
+        Map<String, HRegionLocation> byEncodedName = new HashMap<>(locations.size());
+        Set<RegionInfo> regions = new HashSet<>(locations.size());
+
+        for (HRegionLocation loc : locations) {
+            RegionInfo info = loc.getRegion();
+            regions.add(info);
+            byEncodedName.put(info.getEncodedName(), loc);
+            byTable.computeIfAbsent(info.getTable(), t -> new ArrayList<>()).add(loc);
+            if (loc.getServerName() != null) {
+                byServer.computeIfAbsent(loc.getServerName().getAddress().toString(), s -> new HashSet<>()).add(info);
+            }
+        }
+
+        Map<String, Set<RegionInfo>> serversView = new HashMap<>(byServer.size());
+        byServer.forEach((k, v) -> serversView.put(k, Collections.unmodifiableSet(v)));
+        Map<TableName, List<HRegionLocation>> tablesView = new HashMap<>(byTable.size());
+        byTable.forEach((k, v) -> tablesView.put(k, Collections.unmodifiableList(v)));
+
+        this.regionsByServer = Collections.unmodifiableMap(serversView);
+        this.regionsByTable = Collections.unmodifiableMap(tablesView);
+        this.regionsByEncodedName = Collections.unmodifiableMap(byEncodedName);
+        this.allRegions = Collections.unmodifiableSet(regions);
+    }
+
+    private MetaSnapshot(long version, long timestamp, long watermark, Map<String, Set<RegionInfo>> regionsByServer,
+                         Map<TableName, List<HRegionLocation>> regionsByTable, Map<String, HRegionLocation> regionsByEncodedName,
+                         Set<RegionInfo> allRegions) {
+        this.version = version;
+        this.timestamp = timestamp;
+        this.watermark = watermark;
+        this.regionsByServer = regionsByServer;
+        this.regionsByTable = regionsByTable;
+        this.regionsByEncodedName = regionsByEncodedName;
+        this.allRegions = allRegions;
+    }
+
+    public static MetaSnapshot of(long timestamp, long watermark, Collection<HRegionLocation> locations) {
+        return new MetaSnapshot(1L, timestamp, watermark, locations);
+    }
+
+    MetaSnapshot withVersion(long version) {
+        return new MetaSnapshot(version, timestamp, watermark, regionsByServer, regionsByTable, regionsByEncodedName, allRegions);
+    }
+
+    /**
+     * Indexes of servers and tables not touched by the delta are shared with this snapshot.
+     */
+    MetaSnapshot apply(MetaDelta delta) {
+        long nextWatermark = Math.max(watermark, delta.getWatermark());
+        if (delta.isEmpty()) {
+            return new MetaSnapshot(version + 1, delta.getTimestamp(), nextWatermark, regionsByServer, regionsByTable, regionsByEncodedName, allRegions);
+        }
+        Map<String, HRegionLocation> byEncodedName = new HashMap<>(regionsByEncodedName);
+        Set<RegionInfo> regions = new HashSet<>(allRegions);
+        Map<String, Set<RegionInfo>> changedServers = new HashMap<>();
+        Map<TableName, Map<String, HRegionLocation>> changedTables = new HashMap<>();
+
+        for (String encodedName : delta.getRemoved()) {
+            HRegionLocation old = byEncodedName.remove(encodedName);
+            if (old != null) {
+                regions.remove(old.getRegion());
+                removeFromIndexes(old, changedServers, changedTables);
+            }
+        }
+        for (Map.Entry<String, HRegionLocation> e : delta.getUpdated().entrySet()) {
+            HRegionLocation old = byEncodedName.put(e.getKey(), e.getValue());
+            if (old != null) {
+                regions.remove(old.getRegion());
+                if (old.getServerName() != null) {
+                    serverIndex(old.getServerName().getAddress().toString(), changedServers).remove(old.getRegion());
+                }
+            }
+            HRegionLocation loc = e.getValue();
+            regions.add(loc.getRegion());
+            // a region keeps its position in the table index when it is updated
+            tableIndex(loc.getRegion().getTable(), changedTables).put(e.getKey(), loc);
+            if (loc.getServerName() != null) {
+                serverIndex(loc.getServerName().getAddress().toString(), changedServers).add(loc.getRegion());
+            }
+        }
+
+        Map<String, Set<RegionInfo>> serversView = new HashMap<>(regionsByServer);
+        changedServers.forEach((server, set) -> {
+            if (set.isEmpty()) {
+                serversView.remove(server);
+            } else {
+                serversView.put(server, Collections.unmodifiableSet(set));
+            }
+        });
+        Map<TableName, List<HRegionLocation>> tablesView = new HashMap<>(regionsByTable);
+        changedTables.forEach((table, locations) -> {
+            if (locations.isEmpty()) {
+                tablesView.remove(table);
+            } else {
+                tablesView.put(table, Collections.unmodifiableList(new ArrayList<>(locations.values())));
+            }
+        });
+        return new MetaSnapshot(version + 1, delta.getTimestamp(), nextWatermark, Collections.unmodifiableMap(serversView),
+                Collections.unmodifiableMap(tablesView), Collections.unmodifiableMap(byEncodedName), Collections.unmodifiableSet(regions));
+    }
+
+    private void removeFromIndexes(HRegionLocation old, Map<String, Set<RegionInfo>> changedServers,
+                                   Map<TableName, Map<String, HRegionLocation>> changedTables) {
+        tableIndex(old.getRegion().getTable(), changedTables).remove(old.getRegion().getEncodedName());
+        if (old.getServerName() != null) {
+            serverIndex(old.getServerName().getAddress().toString(), changedServers).remove(old.getRegion());
+        }
+    }
+
+    // copy of a server index made on the first change of the server
+    private Set<RegionInfo> serverIndex(String server, Map<String, Set<RegionInfo>> changedServers) {
+        return changedServers.computeIfAbsent(server, s -> new HashSet<>(regionsByServer.getOrDefault(s, Collections.emptySet())));
+    }
+
+    // copy of a table index made on the first change of the table, keyed by encoded name, new regions are appended
+    private Map<String, HRegionLocation> tableIndex(TableName table, Map<TableName, Map<String, HRegionLocation>> changedTables) {
+        return changedTables.computeIfAbsent(table, t -> {
+            Map<String, HRegionLocation> locations = new LinkedHashMap<>();
+            regionsByTable.getOrDefault(t, Collections.emptyList()).forEach(l -> locations.put(l.getRegion().getEncodedName(), l));
+            return locations;
+        });
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public boolean isEmpty() {
+        return allRegions.isEmpty();
+    }
+
+    public int getRegionsCount() {
+        return allRegions.size();
+    }
+
+    public Set<RegionInfo> getAllRegions() {
+        return allRegions;
+    }
+
+    public Set<RegionInfo> getRegions(ServerName serverName) {
+        return regionsByServer.getOrDefault(serverName.getAddress().toString(), Collections.emptySet());
+    }
+
+    public Map<ServerName, Set<RegionInfo>> getRegionsByServer(Collection<ServerName> servers) {
+        Map<ServerName, Set<RegionInfo>> result = new HashMap<>(servers.size());
+        for (ServerName sn : servers) {
+            result.put(sn, getRegions(sn));
+        }
+        return result;
+    }
+
+    public Set<TableName> getTables() {
+        return regionsByTable.keySet();
+    }
+
+    public List<HRegionLocation> getTableRegions(TableName tableName) {
+        return regionsByTable.getOrDefault(tableName, Collections.emptyList());
+    }
+
+    public HRegionLocation getRegionLocation(String encodedRegionName) {
+        return regionsByEncodedName.get(encodedRegionName);
+    }
+
+    Collection<HRegionLocation> getAllLocations() {
+        return regionsByEncodedName.values();
+    }
+
+    public Map<TableName, Map<ServerName, List<String>>> getTablesDistribution(Collection<ServerName> servers) {
+        Map<String, ServerName> liveServers = new HashMap<>(servers.size());
+        servers.forEach(sn -> liveServers.put(sn.getAddress().toString(), sn));
+
+        Map<TableName, Map<ServerName, List<String>>> results = new HashMap<>(regionsByTable.size());
+        regionsByTable.forEach((tn, locations) -> {
+            Map<ServerName, List<String>> distribution = null;
+            for (HRegionLocation loc : locations) {
+                ServerName sn = loc.getServerName() == null ? null : liveServers.get(loc.getServerName().getAddress().toString());
+                if (sn == null) {
+                    continue;
+                }
+                if (distribution == null) {
+                    distribution = new HashMap<>(servers.size());
+                    for (ServerName s : servers) {
+                        distribution.put(s, new ArrayList<>());
+                    }
+                }
+                distribution.get(sn).add(loc.getRegion().getEncodedName());
+            }
+            if (distribution != null) {
+                results.put(tn, distribution);
+            }
+        });
+        return results;
+    }
+}
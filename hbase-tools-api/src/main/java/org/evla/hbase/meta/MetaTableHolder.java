@@ -1,28 +1,80 @@
 package org.evla.hbase.meta;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.evla.hbase.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.*;
-
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the last read hbase:meta snapshot. Snapshots are immutable and published with a single atomic swap,
+ * so readers never lock and always see a consistent cluster view. Refreshes are serialized and coalesced.
+ */
 public class MetaTableHolder {
     private static final Logger LOGGER = LoggerFactory.getLogger(MetaTableHolder.class);
-    private final Map<ServerName, Set<HRegionInfo>> regionsByServer = new HashMap<>();
 
-    private ExecutorService getExecutorService(int servers) {
-        return Executors.newFixedThreadPool(servers, new ThreadFactoryBuilder().setNameFormat("meta-reader-%d").build());
+    public static final long DEFAULT_FULL_RESCAN_PERIOD = TimeUnit.MINUTES.toMillis(30);
+    // meta cells are stamped by the master clock, so re-read a small window before the last seen change
+    private static final long CHANGES_OVERLAP = TimeUnit.SECONDS.toMillis(30);
+    private static final long CACHE_STORE_PERIOD = TimeUnit.MINUTES.toMillis(1);
+
+    private final long fullRescanPeriod;
+    private final List<MetaChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicReference<MetaSnapshot> snapshot = new AtomicReference<>(MetaSnapshot.EMPTY);
+    private long lastFullScan = 0L;
+    private String clusterId = null;
+    private long lastCacheStore = 0L;
+    private final AtomicLong generation = new AtomicLong(0);
+
+    public MetaTableHolder() {
+        this(DEFAULT_FULL_RESCAN_PERIOD);
+    }
+
+    public MetaTableHolder(long fullRescanPeriod) {
+        this.fullRescanPeriod = fullRescanPeriod;
     }
 
-    public Set<HRegionInfo> getAllRegionsFromMemory() {
-        Set<HRegionInfo> regions = new HashSet<>();
-        regionsByServer.values().forEach(regions::addAll);
-        return regions;
+    public void subscribe(MetaChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(MetaChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public long getVersion() {
+        return snapshot.get().getVersion();
+    }
+
+    public MetaSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Publishes a snapshot built outside of {@link #refresh(Connection)}, listeners are not notified.
+     */
+    void publish(MetaSnapshot next) {
+        snapshot.set(next);
+    }
+
+    public Set<RegionInfo> getAllRegionsFromMemory() {
+        return snapshot.get().getAllRegions();
+    }
+
+    public MetaSnapshot getSnapshot(Connection connection) {
+        if (snapshot.get().getVersion() == 0) {
+            refresh(connection);
+        }
+        return snapshot.get();
     }
 
     public Map<TableName, Map<ServerName, List<String>>> getTablesDistribution(Connection connection, Collection<ServerName> servers) {
@@ -30,111 +82,118 @@ public class MetaTableHolder {
     }
 
     public Map<TableName, Map<ServerName, List<String>>> getTablesDistribution(Connection connection, Collection<ServerName> servers, boolean needUpdate) {
-        Map<TableName, Map<ServerName, List<String>>> results = new ConcurrentHashMap<>();
-
-        if (regionsByServer.isEmpty() || needUpdate) {
-            List<Callable<Void>> tasks = new ArrayList<>();
+        if (snapshot.get().getVersion() == 0 || needUpdate) {
             LOGGER.debug("Get cluster distribution info from hbase:meta");
-            servers.parallelStream().forEach(sn -> tasks.add(() -> {
-                LOGGER.debug("Get distribution info from for {} from hbase:meta", sn);
-                updateRegion(connection, sn);
-                Set<HRegionInfo> regions = regionsByServer.get(sn);
-                for (HRegionInfo info : regions) {
-                    TableName tn = info.getTable();
-                    results.putIfAbsent(tn, new ConcurrentHashMap<>());
-                    results.get(tn).putIfAbsent(sn, new ArrayList<>());
-                    results.get(tn).get(sn).add(info.getEncodedName());
-                }
-                return null;
-            }));
-            ExecutorService es = getExecutorService(servers.size());
-            executeActions(tasks, es);
-
-            results.forEach((tn, map) -> {
-                for (ServerName sn : servers) {
-                    map.putIfAbsent(sn, new ArrayList<>());
-                }
-            });
-
-            es.shutdown();
+            refresh(connection);
         } else {
             LOGGER.info("Calculate distribution info from memory");
-            servers.parallelStream().forEach(sn -> {
-                LOGGER.debug("Calculate distribution info from memory for {}", sn);
-                Set<HRegionInfo> regions = regionsByServer.get(sn);
-                for (HRegionInfo info : regions) {
-                    TableName tn = info.getTable();
-                    results.putIfAbsent(tn, new ConcurrentHashMap<>());
-                    results.get(tn).putIfAbsent(sn, new ArrayList<>());
-                    results.get(tn).get(sn).add(info.getEncodedName());
-                }
-            });
         }
-        return results;
+        return snapshot.get().getTablesDistribution(servers);
     }
 
-    public Set<HRegionInfo> getAllRegionsByServer(Connection connection, ServerName serverName) {
-        if (regionsByServer.get(serverName) == null)
-            updateRegion(connection, serverName);
-
-        return regionsByServer.get(serverName);
+    public Set<RegionInfo> getAllRegionsByServer(Connection connection, ServerName serverName) {
+        return getSnapshot(connection).getRegions(serverName);
     }
 
-    public Set<HRegionInfo> getAllRegionsByServer(Connection connection, ServerName serverName, boolean isNeedUpdate) {
+    public Set<RegionInfo> getAllRegionsByServer(Connection connection, ServerName serverName, boolean isNeedUpdate) {
         if (isNeedUpdate) {
             updateRegion(connection, serverName);
         }
-        Set<HRegionInfo> res = regionsByServer.get(serverName);
-        return res == null ? Collections.emptySet() : res;
+        return snapshot.get().getRegions(serverName);
     }
 
     public void updateRegion(Connection connection, ServerName serverName) {
-        if (connection != null) {
-            LOGGER.debug("Start reading info from hbase:meta for {}", serverName);
-            Set<HRegionInfo> regions = MetaTableInfoService.getTableRegions(connection, serverName);
-
-            regionsByServer.remove(serverName);
-            regionsByServer.put(serverName, regions);
-        }
+        LOGGER.debug("Refresh hbase:meta snapshot requested for {}", serverName);
+        refresh(connection);
     }
 
-    public Map<ServerName, Set<HRegionInfo>> getAllRegions(Collection<ServerName> servers, Connection connection) {
+    public Map<ServerName, Set<RegionInfo>> getAllRegions(Collection<ServerName> servers, Connection connection) {
         LOGGER.info("Get all regions from cluster and make mapping to RegionSevers");
-        if (regionsByServer.isEmpty()) {
-            List<Callable<Void>> tasks = new ArrayList<>();
-            servers.forEach(sn -> tasks.add(() -> {
-                updateRegion(connection, sn);
-                return null;
-            }));
-            ExecutorService es = getExecutorService(servers.size());
-            executeActions(tasks, es);
-            es.shutdown();
+        return getSnapshot(connection).getRegionsByServer(servers);
+    }
+
+    public void refresh(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        long requested = generation.get();
+        List<MetaChange> changes = Collections.emptyList();
+        synchronized (this) {
+            if (generation.get() != requested) {
+                // snapshot was refreshed by another thread while we were waiting
+                return;
+            }
+            try {
+                MetaSnapshot previous = snapshot.get();
+                MetaSnapshot current;
+                long now = System.currentTimeMillis();
+                if (previous.getVersion() == 0) {
+                    // cached snapshot is validated below with the regular incremental read
+                    previous = loadCached(connection, now);
+                }
+                if (previous.getVersion() == 0 || now - lastFullScan > fullRescanPeriod) {
+                    LOGGER.debug("Start full reading info from hbase:meta");
+                    current = MetaTableInfoService.getMetaSnapshot(connection).withVersion(previous.getVersion() + 1);
+                    if (previous.getVersion() > 0) {
+                        changes = MetaChange.fromSnapshots(previous, current);
+                        LOGGER.info("Consistency check of hbase:meta found {} changes", changes.size());
+                    }
+                    lastFullScan = now;
+                } else {
+                    LOGGER.debug("Start reading changes from hbase:meta since {}", previous.getWatermark());
+                    MetaDelta delta = MetaTableInfoService.getMetaChanges(connection, previous.getWatermark() - CHANGES_OVERLAP);
+                    changes = MetaChange.fromDelta(previous, delta);
+                    current = previous.apply(delta);
+                }
+                snapshot.set(current);
+                storeCached(current, now);
+                LOGGER.debug("hbase:meta snapshot v{} contains {} regions", current.getVersion(), current.getRegionsCount());
+            } catch (Exception e) {
+                LOGGER.error("Cant read hbase:meta, previous snapshot will be used. " + e.getMessage(), e);
+            } finally {
+                generation.incrementAndGet();
+            }
+            notifyListeners(changes);
         }
-        return regionsByServer;
     }
 
-    private static void executeActions(Collection<Callable<Void>> actions, ExecutorService executorService) {
+    private MetaSnapshot loadCached(Connection connection, long now) {
+        if (!SnapshotCache.isEnabled()) {
+            return MetaSnapshot.EMPTY;
+        }
         try {
-            List<Future<Void>> futures = executorService.invokeAll(actions);
-            for (Future<Void> f : futures) {
-                executeFuture(f);
+            clusterId = SnapshotCache.getClusterId(connection);
+            Pair<Long, MetaSnapshot> cached = SnapshotCache.loadMeta(clusterId);
+            if (cached != null && now - cached.getFirst() <= fullRescanPeriod) {
+                lastFullScan = cached.getFirst();
+                return cached.getSecond();
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(e.getMessage(), e);
         } catch (Exception e) {
-            throw new RuntimeException(e.getMessage(), e);
+            LOGGER.warn("Cant use cached hbase:meta snapshot: {}", e.getMessage());
         }
+        return MetaSnapshot.EMPTY;
     }
 
-    private static void executeFuture(Future<Void> f) throws InterruptedException {
-        try {
-            f.get();
-            if (!f.isDone()) {
-                throw new RuntimeException("Cant execute tasks");
+    private void storeCached(MetaSnapshot current, long now) {
+        if (clusterId == null || (now - lastCacheStore < CACHE_STORE_PERIOD && lastFullScan != now)) {
+            return;
+        }
+        SnapshotCache.saveMeta(clusterId, current, lastFullScan);
+        lastCacheStore = now;
+    }
+
+    private void notifyListeners(List<MetaChange> changes) {
+        if (changes.isEmpty() || listeners.isEmpty()) {
+            return;
+        }
+        for (MetaChange change : changes) {
+            for (MetaChangeListener listener : listeners) {
+                try {
+                    listener.onChange(change);
+                } catch (Exception e) {
+                    LOGGER.error("Meta change listener failed on " + change + ": " + e.getMessage(), e);
+                }
             }
-        } catch (ExecutionException e) {
-            throw new RuntimeException("Error while executing: " + e.getMessage(), e);
         }
     }
 }
@@ -2,13 +2,13 @@ package org.evla.hbase.meta;
 
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MetaTableInfoService {
     private static final Logger LOGGER = LoggerFactory.getLogger(MetaTableInfoService.class);
@@ -51,6 +51,99 @@ public class MetaTableInfoService {
         return visitor.getResults();
     }
 
+    public static MetaSnapshot getMetaSnapshot(Connection connection) throws IOException {
+        long timestamp = System.currentTimeMillis();
+        List<HRegionLocation> locations = new ArrayList<>();
+        AtomicLong watermark = new AtomicLong(0L);
+        MetaTableAccessor.Visitor visitor = r -> {
+            watermark.set(Math.max(watermark.get(), getMaxTimestamp(r)));
+            RegionLocations current = MetaTableAccessor.getRegionLocations(r);
+            if (current == null) {
+                return true;
+            }
+            for (HRegionLocation loc : current.getRegionLocations()) {
+                if (loc != null && !loc.getRegionInfo().isOffline()) {
+                    locations.add(loc);
+                }
+            }
+            return true;
+        };
+        fullScan(connection, visitor, null);
+        LOGGER.debug("Read {} regions from hbase:meta in {} ms", locations.size(), System.currentTimeMillis() - timestamp);
+        return MetaSnapshot.of(timestamp, watermark.get(), locations);
+    }
+
+    static MetaDelta getMetaChanges(Connection connection, long fromTimestamp) throws IOException {
+        long timestamp = System.currentTimeMillis();
+        MetaDelta delta = new MetaDelta(timestamp, fromTimestamp);
+
+        Scan scan = new Scan();
+        scan.addFamily(HConstants.CATALOG_FAMILY);
+        scan.setTimeRange(Math.max(0L, fromTimestamp), HConstants.LATEST_TIMESTAMP);
+        scan.setFilter(new KeyOnlyFilter());
+        scan.setCaching(connection.getConfiguration().getInt(HConstants.HBASE_META_SCANNER_CACHING, 10000));
+
+        List<Get> changedRows = new ArrayList<>();
+        try (Table metaTable = connection.getTable(TableName.META_TABLE_NAME)) {
+            try (ResultScanner scanner = metaTable.getScanner(scan)) {
+                Result data;
+                while ((data = scanner.next()) != null) {
+                    if (data.isEmpty())
+                        continue;
+                    delta.updateWatermark(getMaxTimestamp(data));
+                    changedRows.add(new Get(data.getRow()).addFamily(HConstants.CATALOG_FAMILY));
+                }
+            }
+            if (changedRows.isEmpty()) {
+                return delta;
+            }
+            Result[] results = metaTable.get(changedRows);
+            for (int i = 0; i < results.length; i++) {
+                applyChangedRow(delta, changedRows.get(i).getRow(), results[i]);
+            }
+        }
+        LOGGER.debug("Read {} changed rows from hbase:meta in {} ms", changedRows.size(), System.currentTimeMillis() - timestamp);
+        return delta;
+    }
+
+    private static void applyChangedRow(MetaDelta delta, byte[] row, Result r) {
+        String rowEncodedName = HRegionInfo.encodeRegionName(row);
+        if (r == null || r.isEmpty()) {
+            delta.addRemoved(rowEncodedName);
+            return;
+        }
+        RegionLocations current = MetaTableAccessor.getRegionLocations(r);
+        if (current == null) {
+            delta.addRemoved(rowEncodedName);
+            return;
+        }
+        for (HRegionLocation loc : current.getRegionLocations()) {
+            if (loc == null) {
+                continue;
+            }
+            HRegionInfo info = loc.getRegionInfo();
+            if (info.isSplit()) {
+                delta.addSplitParent(info.getEncodedName());
+            } else if (info.isOffline()) {
+                delta.addRemoved(info.getEncodedName());
+            } else {
+                delta.addUpdated(info.getEncodedName(), loc);
+            }
+        }
+        List<RegionInfo> mergeParents = MetaTableAccessor.getMergeRegions(r.rawCells());
+        if (mergeParents != null) {
+            mergeParents.forEach(p -> delta.addMerge(rowEncodedName, p.getEncodedName()));
+        }
+    }
+
+    private static long getMaxTimestamp(Result r) {
+        long max = 0L;
+        for (Cell cell : r.rawCells()) {
+            max = Math.max(max, cell.getTimestamp());
+        }
+        return max;
+    }
+
     private static void fullScan(Connection connection, final MetaTableAccessor.Visitor visitor, final byte[] startrow) throws IOException {
         Scan scan = new Scan();
         if (startrow != null)
@@ -0,0 +1,86 @@
+package org.evla.hbase.meta;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Sorted set of region ids of a single server. Its size follows the regions of the server, not the largest id
+ * of the dictionary. Ids are mostly added in increasing order, then an add is an append.
+ */
+final class RegionIdSet {
+    static final RegionIdSet EMPTY = new RegionIdSet();
+
+    private int[] ids = new int[0];
+    private int size = 0;
+
+    void add(int id) {
+        if (size > 0 && ids[size - 1] >= id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            insert(-pos - 1, id);
+        } else {
+            insert(size, id);
+        }
+    }
+
+    void remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(ids[i]);
+        }
+    }
+
+    /**
+     * Walks both sets once: ids only in current go to in, ids only in previous go to out.
+     */
+    static void diff(RegionIdSet current, RegionIdSet previous, IntConsumer in, IntConsumer out) {
+        int i = 0;
+        int j = 0;
+        while (i < current.size && j < previous.size) {
+            int c = current.ids[i];
+            int p = previous.ids[j];
+            if (c == p) {
+                i++;
+                j++;
+            } else if (c < p) {
+                in.accept(c);
+                i++;
+            } else {
+                out.accept(p);
+                j++;
+            }
+        }
+        for (; i < current.size; i++) {
+            in.accept(current.ids[i]);
+        }
+        for (; j < previous.size; j++) {
+            out.accept(previous.ids[j]);
+        }
+    }
+
+    private void insert(int pos, int id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(8, size + (size >> 1)));
+        }
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ids[pos] = id;
+        size++;
+    }
+}
@@ -0,0 +1,45 @@
+package org.evla.hbase.meta;
+
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.RegionInfo;
+
+import java.nio.charset.StandardCharsets;
+
+public class RegionMove {
+    private final String regionName;
+    private final String encodedRegionName;
+    private final String source;
+    private final ServerName destination;
+
+    public RegionMove(String regionName, String source, ServerName destination) {
+        this.regionName = regionName;
+        this.encodedRegionName = RegionInfo.encodeRegionName(regionName.getBytes(StandardCharsets.UTF_8));
+        this.source = source;
+        this.destination = destination;
+    }
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public String getEncodedRegionName() {
+        return encodedRegionName;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public ServerName getDestination() {
+        return destination;
+    }
+
+    @Override
+    public String toString() {
+        return "RegionMove{" +
+                "region=" + encodedRegionName +
+                ", source=" + source +
+                ", destination=" + destination +
+                '}';
+    }
+}
@@ -0,0 +1,182 @@
+package org.evla.hbase.meta;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.configuration.TechnicalMetaSettings;
+import org.evla.hbase.rstask.RegionOperations;
+import org.evla.hbase.rstask.RegionStateTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Restores a historical topology: builds a move plan from the topology differences and runs it
+ * with bounded per-source and per-destination concurrency under a global moves-per-second limit.
+ * A move is completed when its request returned and the region has left transition, transitions are tracked
+ * by {@link RegionStateTracker}.
+ */
+public class RegionRestorer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegionRestorer.class);
+    private static final long PROGRESS_PERIOD = TimeUnit.SECONDS.toMillis(10);
+
+    private final Admin admin;
+    private final RegionOperations operations;
+    private final double movesPerSecond;
+    private final int serverParallelism;
+    private final long moveTimeout;
+    private final long statusDelay;
+
+    public RegionRestorer(Admin admin, RegionOperations operations, TechnicalMetaSettings settings) {
+        this.admin = admin;
+        this.operations = operations;
+        this.movesPerSecond = settings.getRestoreMovesPerSecond();
+        this.serverParallelism = Math.max(1, settings.getRestoreServerParallelism());
+        this.moveTimeout = settings.getRestoreMoveTimeout();
+        this.statusDelay = settings.getRestoreStatusDelay();
+    }
+
+    public List<RegionMove> plan(ClusterTopology current, ClusterTopology previous, Collection<ServerName> servers) {
+        List<RegionMove> moves = new ArrayList<>();
+        int missing = 0;
+        for (ServerName sn : servers) {
+            Difference diff = ClusterTopology.calculateRegionsDiffForServer(current, previous, sn);
+            for (DiffRecord r : diff.getDifference()) {
+                if (r.getType() != DiffType.OUT) {
+                    continue;
+                }
+                String source = current.getServer(r.getRecord());
+                if (source == null) {
+                    // region was split, merged or dropped since the snapshot
+                    missing++;
+                    continue;
+                }
+                moves.add(new RegionMove(r.getRecord(), source, sn));
+            }
+        }
+        LOGGER.info("Restore plan contains {} moves to {} servers, {} regions are not online anymore", moves.size(), servers.size(), missing);
+        return moves;
+    }
+
+    public int restore(List<RegionMove> moves) {
+        if (moves.isEmpty()) {
+            return 0;
+        }
+        RateLimiter limiter = RateLimiter.create(movesPerSecond);
+        RegionStateTracker tracker = RegionStateTracker.getInstance(admin);
+
+        Deque<RegionMove> pending = new ArrayDeque<>(moves);
+        Map<String, InFlightMove> inFlight = new HashMap<>();
+        BlockingQueue<InFlightMove> completed = new LinkedBlockingQueue<>();
+        Map<String, Integer> bySource = new HashMap<>();
+        Map<String, Integer> byDestination = new HashMap<>();
+        int moved = 0;
+        int failed = 0;
+        long start = System.currentTimeMillis();
+        long lastProgress = start;
+
+        while (!pending.isEmpty() || !inFlight.isEmpty()) {
+            Iterator<RegionMove> it = pending.iterator();
+            while (it.hasNext()) {
+                RegionMove move = it.next();
+                String destination = move.getDestination().getAddress().toString();
+                if (bySource.getOrDefault(move.getSource(), 0) >= serverParallelism || byDestination.getOrDefault(destination, 0) >= serverParallelism) {
+                    continue;
+                }
+                if (!limiter.tryAcquire()) {
+                    break;
+                }
+                it.remove();
+                bySource.merge(move.getSource(), 1, Integer::sum);
+                byDestination.merge(destination, 1, Integer::sum);
+                CompletableFuture<Void> request = operations.move(move.getEncodedRegionName().getBytes(StandardCharsets.UTF_8), move.getDestination());
+                InFlightMove flight = new InFlightMove(move, request, request.thenCompose(v -> tracker.whenOutOfTransition(move.getEncodedRegionName())));
+                inFlight.put(move.getEncodedRegionName(), flight);
+                flight.completion.whenComplete((v, e) -> completed.offer(flight));
+            }
+
+            // the wait is bounded by the status delay, so timeouts and new rate limiter permits are noticed without completions
+            InFlightMove flight;
+            try {
+                flight = completed.poll(statusDelay, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Restore interrupted, {} moves were not started", pending.size());
+                break;
+            }
+            for (; flight != null; flight = completed.poll()) {
+                // a timed out move is already counted as failed
+                if (inFlight.remove(flight.move.getEncodedRegionName(), flight)) {
+                    if (flight.isMoved()) {
+                        moved++;
+                    } else {
+                        failed++;
+                    }
+                    release(flight, bySource, byDestination);
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            Iterator<InFlightMove> flights = inFlight.values().iterator();
+            while (flights.hasNext()) {
+                InFlightMove timedOut = flights.next();
+                if (now - timedOut.started > moveTimeout) {
+                    LOGGER.warn("Move of region {} to {} is not completed in {} ms", timedOut.move.getEncodedRegionName(), timedOut.move.getDestination(), moveTimeout);
+                    timedOut.request.cancel(true);
+                    failed++;
+                    flights.remove();
+                    release(timedOut, bySource, byDestination);
+                }
+            }
+
+            if (now - lastProgress >= PROGRESS_PERIOD) {
+                lastProgress = now;
+                logProgress(moved, failed, inFlight.size(), pending.size(), now - start);
+            }
+        }
+        logProgress(moved, failed, inFlight.size(), pending.size(), System.currentTimeMillis() - start);
+        return moved;
+    }
+
+    private static void release(InFlightMove flight, Map<String, Integer> bySource, Map<String, Integer> byDestination) {
+        bySource.merge(flight.move.getSource(), -1, Integer::sum);
+        byDestination.merge(flight.move.getDestination().getAddress().toString(), -1, Integer::sum);
+    }
+
+    private void logProgress(int moved, int failed, int inFlight, int pending, long elapsed) {
+        double rate = elapsed > 0 ? moved * 1000.0 / elapsed : 0.0;
+        String eta = rate > 0 ? (long) ((inFlight + pending) / rate) + "s" : "unknown";
+        LOGGER.info("Restore progress: moved={}, failed={}, inFlight={}, pending={}, rate={} moves/s, ETA={}",
+                moved, failed, inFlight, pending, String.format("%.2f", rate), eta);
+    }
+
+    private static final class InFlightMove {
+        private final RegionMove move;
+        private final CompletableFuture<Void> request;
+        // completed when the request returned and the region has left transition
+        private final CompletableFuture<Void> completion;
+        private final long started = System.currentTimeMillis();
+
+        private InFlightMove(RegionMove move, CompletableFuture<Void> request, CompletableFuture<Void> completion) {
+            this.move = move;
+            this.request = request;
+            this.completion = completion;
+        }
+
+        private boolean isMoved() {
+            try {
+                completion.get();
+                LOGGER.debug("Region {} moved to {}", move.getEncodedRegionName(), move.getDestination());
+                return true;
+            } catch (ExecutionException e) {
+                LOGGER.error("Cant move region {} to {}: {}", move.getEncodedRegionName(), move.getDestination(), e.getCause().getMessage());
+            } catch (Exception e) {
+                LOGGER.error("Cant move region {} to {}: {}", move.getEncodedRegionName(), move.getDestination(), e.getMessage());
+            }
+            return false;
+        }
+    }
+}
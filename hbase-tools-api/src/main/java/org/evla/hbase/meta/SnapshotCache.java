@@ -0,0 +1,240 @@
+package org.evla.hbase.meta;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.hbase.ClusterMetrics;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.evla.hbase.ClusterMetricsProvider;
+import org.evla.hbase.Pair;
+import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Optional local cache of hbase:meta and technical meta topology snapshots, one set of files per cluster id.
+ * Files are written to a temporary file and atomically renamed. Topology files keep the snapshot time in the
+ * header, it decides when the file is expired.
+ */
+public class SnapshotCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotCache.class);
+    private static final int META_MAGIC = 0x4D455441;
+    private static final int TOPOLOGY_MAGIC = 0x544F504F;
+    private static final int FORMAT_VERSION = 1;
+    // the snapshot time is stored after the header since version 2
+    private static final int TOPOLOGY_FORMAT_VERSION = 2;
+    private static final int TOPOLOGY_CHUNK_REGIONS = 50000;
+
+    private static volatile Path directory = null;
+    private static volatile long topologyTTL = Long.MAX_VALUE;
+
+    private SnapshotCache() {
+    }
+
+    public static void configure(HBaseToolsSettings settings) {
+        if (!settings.getCommonSettings().isSnapshotCacheEnable()) {
+            directory = null;
+            return;
+        }
+        Path dir = Paths.get(settings.getCommonSettings().getSnapshotCacheDir());
+        try {
+            Files.createDirectories(dir);
+            topologyTTL = settings.getTechnicalMetaSettings().getTechnicalMetaTableRecordTTL();
+            directory = dir;
+            LOGGER.info("Local snapshot cache is enabled in {}", dir.toAbsolutePath());
+        } catch (IOException e) {
+            LOGGER.error("Cant create snapshot cache directory " + dir + ": " + e.getMessage(), e);
+            directory = null;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return directory != null;
+    }
+
+    static String getClusterId(Connection connection) throws IOException {
+        return ClusterMetricsProvider.getInstance(connection).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.CLUSTER_ID), Long.MAX_VALUE).getClusterId();
+    }
+
+    /**
+     * @return time of the full hbase:meta scan the cached snapshot is based on and the snapshot itself
+     */
+    static Pair<Long, MetaSnapshot> loadMeta(String clusterId) {
+        Path file = file(clusterId, "meta");
+        if (file == null || !Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = open(file)) {
+            checkHeader(in, META_MAGIC, FORMAT_VERSION);
+            long fullScanTime = in.readLong();
+            long timestamp = in.readLong();
+            long watermark = in.readLong();
+            int count = in.readInt();
+            List<HRegionLocation> locations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                RegionInfo info = RegionInfo.parseFrom(readBytes(in));
+                byte[] server = readBytes(in);
+                long seqNum = in.readLong();
+                locations.add(new HRegionLocation(info, server.length == 0 ? null : ServerName.valueOf(Bytes.toString(server)), seqNum));
+            }
+            LOGGER.info("Loaded {} regions of hbase:meta from {}", count, file);
+            return new Pair<>(fullScanTime, MetaSnapshot.of(timestamp, watermark, locations));
+        } catch (Exception e) {
+            LOGGER.warn("Cant read cached hbase:meta snapshot {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    static void saveMeta(String clusterId, MetaSnapshot snapshot, long fullScanTime) {
+        write(file(clusterId, "meta"), out -> {
+            out.writeInt(META_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fullScanTime);
+            out.writeLong(snapshot.getTimestamp());
+            out.writeLong(snapshot.getWatermark());
+            out.writeInt(snapshot.getAllLocations().size());
+            for (HRegionLocation loc : snapshot.getAllLocations()) {
+                writeBytes(out, RegionInfo.toByteArray(loc.getRegion()));
+                writeBytes(out, loc.getServerName() == null ? new byte[0] : Bytes.toBytes(loc.getServerName().getServerName()));
+                out.writeLong(loc.getSeqNum());
+            }
+        });
+    }
+
+    static ClusterTopology loadTopology(String clusterId, long snapshotTime, TopologyDictionary dictionary) {
+        Path file = file(clusterId, "topology-" + snapshotTime);
+        if (file == null || !Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = open(file)) {
+            checkHeader(in, TOPOLOGY_MAGIC, TOPOLOGY_FORMAT_VERSION);
+            in.readLong();
+            byte[] servers = readBytes(in);
+            int count = in.readInt();
+            List<byte[]> chunks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                chunks.add(readBytes(in));
+            }
+            ClusterTopology topology = new ClusterTopology(dictionary);
+            TopologyBlobCodec.of(servers, chunks).decodeTo(topology);
+            LOGGER.info("Loaded cluster topology {} from {}", snapshotTime, file);
+            return topology;
+        } catch (Exception e) {
+            LOGGER.warn("Cant read cached cluster topology {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    static void saveTopology(String clusterId, long snapshotTime, ClusterTopology topology) {
+        write(file(clusterId, "topology-" + snapshotTime), out -> {
+            // chunks of a local file are not stored in cells, so their size is not limited
+            TopologyBlobCodec blob = TopologyBlobCodec.encode(topology, TOPOLOGY_CHUNK_REGIONS, Integer.MAX_VALUE);
+            out.writeInt(TOPOLOGY_MAGIC);
+            out.writeInt(TOPOLOGY_FORMAT_VERSION);
+            out.writeLong(snapshotTime);
+            writeBytes(out, blob.getServersBlob());
+            out.writeInt(blob.getChunks().size());
+            for (byte[] chunk : blob.getChunks()) {
+                writeBytes(out, chunk);
+            }
+        });
+        removeExpiredTopologies(clusterId);
+    }
+
+    private static void removeExpiredTopologies(String clusterId) {
+        Path any = file(clusterId, "topology-");
+        if (any == null) {
+            return;
+        }
+        String prefix = any.getFileName().toString().replace(".snapshot", "");
+        long border = System.currentTimeMillis() - topologyTTL;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(any.getParent(), prefix + "*")) {
+            for (Path file : files) {
+                // temporary files of the writers are left alone, they may have no header yet
+                if (!file.getFileName().toString().endsWith(".tmp") && readTopologyTime(file) < border) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cant cleanup expired topologies in {}: {}", any.getParent(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return snapshot time of the topology file, 0 when the file can not be read, so it is removed
+     */
+    private static long readTopologyTime(Path file) {
+        try (DataInputStream in = open(file)) {
+            checkHeader(in, TOPOLOGY_MAGIC, TOPOLOGY_FORMAT_VERSION);
+            return in.readLong();
+        } catch (IOException e) {
+            LOGGER.debug("Cant read the header of {}: {}", file, e.getMessage());
+            return 0;
+        }
+    }
+
+    private static Path file(String clusterId, String name) {
+        Path dir = directory;
+        if (dir == null || StringUtils.isBlank(clusterId)) {
+            return null;
+        }
+        return dir.resolve(clusterId.replaceAll("[^A-Za-z0-9._-]", "_") + "." + name + ".snapshot");
+    }
+
+    private static void write(Path file, SnapshotWriter writer) {
+        if (file == null) {
+            return;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                writer.write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Snapshot stored in {}", file);
+        } catch (IOException e) {
+            LOGGER.warn("Cant store snapshot in {}: {}", file, e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+    }
+
+    private static void checkHeader(DataInputStream in, int magic, int version) throws IOException {
+        if (in.readInt() != magic || in.readInt() != version) {
+            throw new IOException("Unsupported snapshot file format");
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted snapshot file");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private interface SnapshotWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
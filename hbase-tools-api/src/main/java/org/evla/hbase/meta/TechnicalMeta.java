@@ -1,12 +1,13 @@
 package org.evla.hbase.meta;
 
-import org.apache.commons.lang3.builder.Diff;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.regionserver.BloomType;
-import org.apache.hadoop.hbase.types.CopyOnWriteArrayMap;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.configuration.HBaseToolsSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,11 +23,23 @@ import java.util.*;
 public class TechnicalMeta {
     private static final Logger LOGGER = LoggerFactory.getLogger(TechnicalMeta.class);
     private static final DateTimeFormatter DEFAULT_PATTERN = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final byte[] FAMILY = Bytes.toBytes("cf");
+    private static final String SERVER_PREFIX = "server_";
+    private static final String SNAPSHOT_PREFIX = "snapshot_";
+    // region names always contain ',' so service rows never clash with a region row
+    private static final byte[] SNAPSHOTS_ROW = Bytes.toBytes("__snapshots__");
+    private static final String BLOB_ROW_PREFIX = "__topology__";
+    private static final byte[] BLOB_SERVERS = Bytes.toBytes("servers");
+    private static final byte[] BLOB_CHUNKS = Bytes.toBytes("chunks");
+    private static final String BLOB_CHUNK_PREFIX = "chunk_";
+    private static final int SCAN_CACHING = 10000;
     private final TableName technicalMetaTable;
 
     private final Admin admin;
     private final HBaseToolsSettings settings;
     private final MetaTableHolder holder = new MetaTableHolder();
+    // the live and the stored topologies are built on one dictionary, so they are compared by ids
+    private volatile TopologyDictionary dictionary = new TopologyDictionary();
 
     TechnicalMeta(Admin admin, HBaseToolsSettings settings) {
         this.admin = admin;
@@ -72,7 +85,7 @@ public class TechnicalMeta {
     }
 
     private void createTechnicalTable() throws IOException {
-        HColumnDescriptor columnDescriptor = new HColumnDescriptor("cf");
+        HColumnDescriptor columnDescriptor = new HColumnDescriptor(FAMILY);
         columnDescriptor.setBloomFilterType(BloomType.ROW);
         columnDescriptor.setCompressionType(Compression.Algorithm.SNAPPY);
         columnDescriptor.setDataBlockEncoding(DataBlockEncoding.FAST_DIFF);
@@ -111,7 +124,7 @@ public class TechnicalMeta {
 
     public ClusterTopology getActualTopology(boolean updateState) {
         try {
-            Map<ServerName, Set<HRegionInfo>> meta = holder.getAllRegions(admin.getClusterStatus().getServers(), admin.getConnection());
+            Map<ServerName, Set<RegionInfo>> meta = holder.getAllRegions(ClusterMetricsProvider.getInstance(admin).getServers(), admin.getConnection());
             LOGGER.info("Get current cluster topology");
             ClusterTopology topology = getClusterState(meta);
 
@@ -128,33 +141,111 @@ public class TechnicalMeta {
     }
 
     public ClusterTopology getTopology(long timestamp) {
-        NavigableMap<Long, ClusterTopology> history = new CopyOnWriteArrayMap<>(Long::compareTo);
         LOGGER.info("Reading cluster topology");
-        Scan scan = new Scan();
-        try {
-            ResultScanner resultScanner = admin.getConnection().getTable(technicalMetaTable).getScanner(scan);
-            Result result;
-            while ((result = resultScanner.next()) != null) {
-                while (result.advance()) {
-                    Cell cell = result.current();
-                    String regionName = new String(CellUtil.cloneRow(cell));
-                    String colName = new String(CellUtil.cloneQualifier(cell));
-                    if (!colName.startsWith("server_")) {
-                        continue;
+        try (Table table = admin.getConnection().getTable(technicalMetaTable)) {
+            Long snapshotTime = resolveSnapshotTime(table, timestamp);
+            if (snapshotTime == null) {
+                LOGGER.info("There is no stored cluster topology before {}", timestamp);
+                return ClusterTopology.EMPTY_TOPOLOGY;
+            }
+            LOGGER.info("Nearest stored cluster topology for {} is {}", timestamp, snapshotTime);
+            if (!SnapshotCache.isEnabled()) {
+                return readTopology(table, snapshotTime);
+            }
+            // stored topologies never change, so a cached copy is always valid
+            String clusterId = SnapshotCache.getClusterId(admin.getConnection());
+            ClusterTopology topology = SnapshotCache.loadTopology(clusterId, snapshotTime, dictionary);
+            if (topology == null) {
+                topology = readTopology(table, snapshotTime);
+                SnapshotCache.saveTopology(clusterId, snapshotTime, topology);
+            }
+            return topology;
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+        return ClusterTopology.EMPTY_TOPOLOGY;
+    }
+
+    private Long resolveSnapshotTime(Table table, long timestamp) throws IOException {
+        NavigableSet<Long> snapshots = readSnapshotsIndex(table);
+        if (snapshots.isEmpty()) {
+            snapshots = collectStoredSnapshots(table);
+        }
+        return snapshots.floor(timestamp);
+    }
+
+    private NavigableSet<Long> readSnapshotsIndex(Table table) throws IOException {
+        NavigableSet<Long> snapshots = new TreeSet<>();
+        Result index = table.get(new Get(SNAPSHOTS_ROW).addFamily(FAMILY));
+        for (Cell cell : index.rawCells()) {
+            String colName = Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+            if (colName.startsWith(SNAPSHOT_PREFIX)) {
+                snapshots.add(Long.parseLong(colName.substring(SNAPSHOT_PREFIX.length())));
+            }
+        }
+        return snapshots;
+    }
+
+    // topologies stored before the snapshots index was introduced, timestamps are collected from qualifiers only
+    private NavigableSet<Long> collectStoredSnapshots(Table table) throws IOException {
+        LOGGER.info("Snapshots index is empty, collect stored timestamps from {}", technicalMetaTable);
+        NavigableSet<Long> snapshots = new TreeSet<>();
+        Scan scan = new Scan().addFamily(FAMILY).setFilter(new KeyOnlyFilter()).setCaching(SCAN_CACHING);
+        try (ResultScanner scanner = table.getScanner(scan)) {
+            for (Result result : scanner) {
+                for (Cell cell : result.rawCells()) {
+                    String colName = Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+                    if (colName.startsWith(SERVER_PREFIX)) {
+                        snapshots.add(Long.parseLong(colName.substring(SERVER_PREFIX.length())));
                     }
-                    String[] parts = colName.split("_");
-                    Long time = Long.parseLong(parts[1]);
-                    ClusterTopology ct = history.computeIfAbsent(time, t -> new ClusterTopology());
+                }
+            }
+        }
+        return snapshots;
+    }
 
-                    String serverValue = new String(CellUtil.cloneValue(cell));
-                    ct.mapRegionWithServer(ServerName.parseServerName(serverValue), regionName);
+    private ClusterTopology readTopology(Table table, long snapshotTime) throws IOException {
+        TopologyBlobCodec blob = readTopologyBlob(table, snapshotTime);
+        if (blob != null) {
+            ClusterTopology topology = new ClusterTopology(dictionary);
+            blob.decodeTo(topology);
+            return topology;
+        }
+        return readTopologyCells(table, snapshotTime);
+    }
+
+    private TopologyBlobCodec readTopologyBlob(Table table, long snapshotTime) throws IOException {
+        Result result = table.get(new Get(blobRow(snapshotTime)).addFamily(FAMILY));
+        byte[] servers = result.getValue(FAMILY, BLOB_SERVERS);
+        byte[] chunksCount = result.getValue(FAMILY, BLOB_CHUNKS);
+        if (servers == null || chunksCount == null) {
+            return null;
+        }
+        int count = Bytes.toInt(chunksCount);
+        List<byte[]> chunks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] chunk = result.getValue(FAMILY, Bytes.toBytes(BLOB_CHUNK_PREFIX + i));
+            if (chunk == null) {
+                throw new IOException("Topology blob " + snapshotTime + " is incomplete, chunk " + i + " is missing");
+            }
+            chunks.add(chunk);
+        }
+        return TopologyBlobCodec.of(servers, chunks);
+    }
+
+    private ClusterTopology readTopologyCells(Table table, long snapshotTime) throws IOException {
+        ClusterTopology topology = new ClusterTopology(dictionary);
+        Scan scan = new Scan().addColumn(FAMILY, Bytes.toBytes(SERVER_PREFIX + snapshotTime)).setCaching(SCAN_CACHING);
+        try (ResultScanner scanner = table.getScanner(scan)) {
+            for (Result result : scanner) {
+                for (Cell cell : result.rawCells()) {
+                    String regionName = Bytes.toString(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+                    String serverValue = Bytes.toString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                    topology.mapRegionWithServer(ServerName.parseServerName(serverValue), regionName);
                 }
             }
-        } catch (IOException e) {
-            LOGGER.error(e.getMessage(), e);
         }
-        Map.Entry<Long, ClusterTopology> entry = history.floorEntry(timestamp);
-        return entry != null ? entry.getValue() : ClusterTopology.EMPTY_TOPOLOGY;
+        return topology;
     }
 
     private void updateState(ClusterTopology topology) {
@@ -165,18 +256,32 @@ public class TechnicalMeta {
     }
 
     private void writeTopology(ClusterTopology topology, long timestamp) {
-        try {
-            BufferedMutator mutator = admin.getConnection().getBufferedMutator(technicalMetaTable);
-            for (String sn : topology.getAllServers()) {
-                for (String regionName : topology.getAllRegions(sn)) {
-                    Put put = new Put(regionName.getBytes(StandardCharsets.UTF_8));
-                    put.setTTL(settings.getTechnicalMetaSettings().getTechnicalMetaTableRecordTTL());
-                    put.addColumn("cf".getBytes(StandardCharsets.UTF_8), ("server_" + timestamp).getBytes(StandardCharsets.UTF_8),
-                            sn.getBytes(StandardCharsets.UTF_8));
-
-                    mutator.mutate(put);
+        try (Table table = admin.getConnection().getTable(technicalMetaTable);
+             BufferedMutator mutator = admin.getConnection().getBufferedMutator(technicalMetaTable)) {
+            long ttl = settings.getTechnicalMetaSettings().getTechnicalMetaTableRecordTTL();
+            if (readSnapshotsIndex(table).isEmpty()) {
+                Set<Long> stored = collectStoredSnapshots(table);
+                if (!stored.isEmpty()) {
+                    LOGGER.info("Add {} previously stored topologies to snapshots index", stored.size());
+                    Put index = new Put(SNAPSHOTS_ROW);
+                    stored.forEach(time -> index.addColumn(FAMILY, Bytes.toBytes(SNAPSHOT_PREFIX + time), time, Bytes.toBytes(0)));
+                    index.setTTL(ttl);
+                    mutator.mutate(index);
                 }
             }
+
+            if (settings.getTechnicalMetaSettings().isTechnicalMetaBlobStorageEnable()) {
+                writeTopologyBlob(mutator, topology, timestamp, ttl);
+            } else {
+                writeTopologyCells(mutator, topology, timestamp, ttl);
+            }
+            mutator.flush();
+
+            // index entry is written last, so readers never resolve a partially stored snapshot
+            Put index = new Put(SNAPSHOTS_ROW);
+            index.setTTL(ttl);
+            index.addColumn(FAMILY, Bytes.toBytes(SNAPSHOT_PREFIX + timestamp), timestamp, Bytes.toBytes(topology.getAllRegionsCount()));
+            mutator.mutate(index);
             mutator.flush();
             LocalDateTime ldt = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
             LOGGER.info("Cluster topology successfully stored in {} at {}({})", technicalMetaTable, timestamp, DEFAULT_PATTERN.format(ldt));
@@ -185,14 +290,92 @@ public class TechnicalMeta {
         }
     }
 
-    private ClusterTopology getClusterState(Map<ServerName, Set<HRegionInfo>> meta) {
+    private void writeTopologyCells(BufferedMutator mutator, ClusterTopology topology, long timestamp, long ttl) throws IOException {
+        byte[] qualifier = Bytes.toBytes(SERVER_PREFIX + timestamp);
+        List<Put> puts = new ArrayList<>(topology.getAllRegionsCount());
+        topology.forEachRegion((sn, regionName) -> {
+            Put put = new Put(regionName.getBytes(StandardCharsets.UTF_8));
+            put.setTTL(ttl);
+            put.addColumn(FAMILY, qualifier, sn.getBytes(StandardCharsets.UTF_8));
+            puts.add(put);
+        });
+        mutator.mutate(puts);
+    }
+
+    private void writeTopologyBlob(BufferedMutator mutator, ClusterTopology topology, long timestamp, long ttl) throws IOException {
+        TopologyBlobCodec blob = TopologyBlobCodec.encode(topology, settings.getTechnicalMetaSettings().getTechnicalMetaBlobChunkRegions(),
+                settings.getTechnicalMetaSettings().getTechnicalMetaBlobChunkMaxBytes());
+        byte[] row = blobRow(timestamp);
+        List<byte[]> chunks = blob.getChunks();
+        for (int i = 0; i < chunks.size(); i++) {
+            Put put = new Put(row);
+            put.setTTL(ttl);
+            put.addColumn(FAMILY, Bytes.toBytes(BLOB_CHUNK_PREFIX + i), timestamp, chunks.get(i));
+            mutator.mutate(put);
+        }
+        mutator.flush();
+        // the dictionary and chunks count are written after all chunks and mark the blob as complete
+        Put put = new Put(row);
+        put.setTTL(ttl);
+        put.addColumn(FAMILY, BLOB_SERVERS, timestamp, blob.getServersBlob());
+        put.addColumn(FAMILY, BLOB_CHUNKS, timestamp, Bytes.toBytes(chunks.size()));
+        mutator.mutate(put);
+        LOGGER.info("Topology {} encoded into {} chunks", timestamp, chunks.size());
+    }
+
+    /**
+     * Rewrites every stored topology kept only as per-region cells into the blob format.
+     * Old cells are left in place and expire by their TTL.
+     */
+    public int migrateToBlobStorage() {
+        int migrated = 0;
+        try (Table table = admin.getConnection().getTable(technicalMetaTable);
+             BufferedMutator mutator = admin.getConnection().getBufferedMutator(technicalMetaTable)) {
+            NavigableSet<Long> snapshots = readSnapshotsIndex(table);
+            snapshots.addAll(collectStoredSnapshots(table));
+            long ttl = settings.getTechnicalMetaSettings().getTechnicalMetaTableRecordTTL();
+            for (Long time : snapshots) {
+                if (readTopologyBlob(table, time) != null) {
+                    continue;
+                }
+                ClusterTopology topology = readTopologyCells(table, time);
+                if (topology.getAllRegionsCount() == 0) {
+                    continue;
+                }
+                LOGGER.info("Migrate topology {} with {} regions to blob storage", time, topology.getAllRegionsCount());
+                writeTopologyBlob(mutator, topology, time, ttl);
+                Put index = new Put(SNAPSHOTS_ROW);
+                index.setTTL(ttl);
+                index.addColumn(FAMILY, Bytes.toBytes(SNAPSHOT_PREFIX + time), time, Bytes.toBytes(topology.getAllRegionsCount()));
+                mutator.mutate(index);
+                mutator.flush();
+                migrated++;
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+        LOGGER.info("{} topologies migrated to blob storage", migrated);
+        return migrated;
+    }
+
+    private static byte[] blobRow(long timestamp) {
+        return Bytes.toBytes(BLOB_ROW_PREFIX + timestamp);
+    }
+
+    private ClusterTopology getClusterState(Map<ServerName, Set<RegionInfo>> meta) {
         if (meta == null) {
             return null;
         }
-        ClusterTopology clusterTopology = new ClusterTopology();
+        int regionsCount = meta.values().stream().mapToInt(Set::size).sum();
+        if (dictionary.getRegionsCount() > 2 * regionsCount) {
+            // names of split, merged and old snapshot regions are never removed from a dictionary, start a new one
+            LOGGER.info("Renew topology dictionary of {} regions", dictionary.getRegionsCount());
+            dictionary = new TopologyDictionary();
+        }
+        ClusterTopology clusterTopology = new ClusterTopology(dictionary);
 
-        for (Map.Entry<ServerName, Set<HRegionInfo>> rs : meta.entrySet()) {
-            for (HRegionInfo info : rs.getValue()) {
+        for (Map.Entry<ServerName, Set<RegionInfo>> rs : meta.entrySet()) {
+            for (RegionInfo info : rs.getValue()) {
                 clusterTopology.mapRegionWithServer(rs.getKey(), info.getRegionNameAsString());
             }
         }
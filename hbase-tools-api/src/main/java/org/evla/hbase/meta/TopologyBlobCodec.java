@@ -0,0 +1,168 @@
+package org.evla.hbase.meta;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Columnar encoding of a topology snapshot: a deflated server dictionary and deflated chunks,
+ * each holding a column of region names followed by a column of server ids from the dictionary.
+ * A chunk is closed at the regions limit or before its content exceeds the bytes limit, deflating never makes
+ * it noticeably larger, so a chunk always fits into a cell below hbase.client.keyvalue.maxsize.
+ */
+class TopologyBlobCodec {
+    private static final int FORMAT_VERSION = 1;
+    // format version and regions count of a chunk
+    private static final int CHUNK_HEADER_BYTES = 8;
+
+    private final List<String> servers = new ArrayList<>();
+    private final List<byte[]> chunks = new ArrayList<>();
+
+    private TopologyBlobCodec() {
+    }
+
+    /**
+     * @param chunkRegions  max regions in a chunk
+     * @param chunkMaxBytes max size of a chunk before deflating
+     */
+    static TopologyBlobCodec encode(ClusterTopology topology, int chunkRegions, int chunkMaxBytes) throws IOException {
+        if (chunkRegions < 1) {
+            throw new IllegalArgumentException("Regions in a topology chunk must be positive: " + chunkRegions);
+        }
+        if (chunkMaxBytes < 1024) {
+            throw new IllegalArgumentException("Topology chunk must be at least 1024 bytes: " + chunkMaxBytes);
+        }
+        TopologyBlobCodec codec = new TopologyBlobCodec();
+        Map<String, Integer> serverIds = new HashMap<>();
+        List<String> regions = new ArrayList<>(Math.min(chunkRegions, topology.getAllRegionsCount()));
+        int[] ids = new int[Math.min(chunkRegions, Math.max(1, topology.getAllRegionsCount()))];
+        int[] chunkBytes = {CHUNK_HEADER_BYTES};
+        IOException[] error = new IOException[1];
+
+        topology.forEachRegion((server, region) -> {
+            if (error[0] != null) {
+                return;
+            }
+            Integer id = serverIds.get(server);
+            if (id == null) {
+                id = codec.servers.size();
+                serverIds.put(server, id);
+                codec.servers.add(server);
+            }
+            // modified UTF-8 of writeUTF and the server id
+            int regionBytes = 2 + utfLength(region) + 4;
+            if (!regions.isEmpty() && chunkBytes[0] + regionBytes > chunkMaxBytes) {
+                addChunk(codec, regions, ids, error);
+                chunkBytes[0] = CHUNK_HEADER_BYTES;
+            }
+            ids[regions.size()] = id;
+            regions.add(region);
+            chunkBytes[0] += regionBytes;
+            if (regions.size() == ids.length) {
+                addChunk(codec, regions, ids, error);
+                chunkBytes[0] = CHUNK_HEADER_BYTES;
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+        if (!regions.isEmpty()) {
+            codec.chunks.add(encodeChunk(regions, ids));
+        }
+        return codec;
+    }
+
+    static TopologyBlobCodec of(byte[] serversBlob, List<byte[]> chunks) throws IOException {
+        TopologyBlobCodec codec = new TopologyBlobCodec();
+        try (DataInputStream in = inflate(serversBlob)) {
+            checkVersion(in);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                codec.servers.add(in.readUTF());
+            }
+        }
+        codec.chunks.addAll(chunks);
+        return codec;
+    }
+
+    byte[] getServersBlob() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = deflate(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(servers.size());
+            for (String server : servers) {
+                out.writeUTF(server);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    List<byte[]> getChunks() {
+        return chunks;
+    }
+
+    void decodeTo(ClusterTopology topology) throws IOException {
+        for (byte[] chunk : chunks) {
+            try (DataInputStream in = inflate(chunk)) {
+                checkVersion(in);
+                int count = in.readInt();
+                String[] regions = new String[count];
+                for (int i = 0; i < count; i++) {
+                    regions[i] = in.readUTF();
+                }
+                for (int i = 0; i < count; i++) {
+                    topology.mapRegionWithServer(servers.get(in.readInt()), regions[i]);
+                }
+            }
+        }
+    }
+
+    private static void addChunk(TopologyBlobCodec codec, List<String> regions, int[] ids, IOException[] error) {
+        try {
+            codec.chunks.add(encodeChunk(regions, ids));
+        } catch (IOException e) {
+            error[0] = e;
+        }
+        regions.clear();
+    }
+
+    private static int utfLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+        }
+        return length;
+    }
+
+    private static byte[] encodeChunk(List<String> regions, int[] ids) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = deflate(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(regions.size());
+            for (String region : regions) {
+                out.writeUTF(region);
+            }
+            for (int i = 0; i < regions.size(); i++) {
+                out.writeInt(ids[i]);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void checkVersion(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported topology blob format version: " + version);
+        }
+    }
+
+    private static DataOutputStream deflate(OutputStream out) {
+        return new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(out)));
+    }
+
+    private static DataInputStream inflate(byte[] blob) {
+        return new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(blob))));
+    }
+}
@@ -0,0 +1,61 @@
+package org.evla.hbase.meta;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns region and server names into dense int ids, so a {@link ClusterTopology} stores only primitive ids.
+ * A dictionary lives as long as the topologies built on it, topologies compared often can share one.
+ */
+public class TopologyDictionary {
+    public static final int ABSENT = -1;
+
+    private final Map<String, Integer> regionIds = new HashMap<>();
+    private final List<String> regions = new ArrayList<>();
+    private final Map<String, Integer> serverIds = new HashMap<>();
+    private final List<String> servers = new ArrayList<>();
+
+    public synchronized int regionId(String regionName) {
+        return intern(regionName, regionIds, regions);
+    }
+
+    public synchronized int serverId(String serverName) {
+        return intern(serverName, serverIds, servers);
+    }
+
+    public synchronized int findRegionId(String regionName) {
+        return regionIds.getOrDefault(regionName, ABSENT);
+    }
+
+    public synchronized int findServerId(String serverName) {
+        return serverIds.getOrDefault(serverName, ABSENT);
+    }
+
+    public synchronized String regionName(int id) {
+        return regions.get(id);
+    }
+
+    public synchronized String serverName(int id) {
+        return servers.get(id);
+    }
+
+    public synchronized int getRegionsCount() {
+        return regions.size();
+    }
+
+    public synchronized int getServersCount() {
+        return servers.size();
+    }
+
+    private static int intern(String name, Map<String, Integer> ids, List<String> names) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+}
@@ -2,6 +2,7 @@ package org.evla.hbase.report.reports;
 
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
 import org.evla.hbase.compactor.CompactionWeight;
 import org.evla.hbase.report.*;
 import org.slf4j.Logger;
@@ -32,7 +33,7 @@ public class BiggestRegionsReporter implements Reporter {
     }
 
     private void makeSpecificCheck(Admin admin, SingleReport report, ClusterStatus clusterStatus) {
-        List<HRegionInfo> regionInfos = new ArrayList<>();
+        List<RegionInfo> regionInfos = new ArrayList<>();
         Map<String, RegionLoad> loads = new HashMap<>();
         for (ServerName sn : clusterStatus.getServers()) {
             regionInfos.addAll(getAllRegions(admin, sn, holder));
@@ -56,7 +57,7 @@ public class BiggestRegionsReporter implements Reporter {
         }
     }
 
-    private List<CompactionWeight> getCompactionTasks(List<HRegionInfo> regionInfos, Map<String, RegionLoad> loads) {
+    private List<CompactionWeight> getCompactionTasks(List<RegionInfo> regionInfos, Map<String, RegionLoad> loads) {
         List<CompactionWeight> weights = new ArrayList<>();
         regionInfos.forEach(ri -> {
             RegionLoad rl = loads.get(ri.getEncodedName());
@@ -78,7 +79,7 @@ public class BiggestRegionsReporter implements Reporter {
                 && weight.getTotalRegionSize() > 100;
     }
 
-    private List<HRegionInfo> getAllRegions(Admin admin, ServerName sn, MetaTableHolder holder) {
+    private List<RegionInfo> getAllRegions(Admin admin, ServerName sn, MetaTableHolder holder) {
         return new ArrayList<>(holder.getAllRegionsByServer(admin.getConnection(), sn, false));
     }
 
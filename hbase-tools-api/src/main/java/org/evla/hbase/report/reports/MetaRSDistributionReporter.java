@@ -1,9 +1,9 @@
 package org.evla.hbase.report.reports;
 
 import org.apache.hadoop.hbase.ClusterStatus;
-import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
 import org.evla.hbase.report.*;
 import org.evla.hbase.Pair;
 import org.evla.hbase.meta.MetaTableHolder;
@@ -23,7 +23,7 @@ public class MetaRSDistributionReporter implements Reporter {
     @Override
     public SingleReport runReporterAndCreateReport(Admin admin, ClusterStatus clusterStatus) {
         SingleReport report = new MetaRSSingleReport();
-        Map<ServerName, Set<HRegionInfo>> allInfo = holder.getAllRegions(clusterStatus.getServers(), admin.getConnection());
+        Map<ServerName, Set<RegionInfo>> allInfo = holder.getAllRegions(clusterStatus.getServers(), admin.getConnection());
 
         Integer serversCount = clusterStatus.getServersSize();
         Integer regionsCount = allInfo.values().stream().mapToInt(Set::size).sum();
@@ -4,6 +4,7 @@ import org.apache.hadoop.hbase.ClusterStatus;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.report.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,7 +54,7 @@ public class RuntimeTableDistributionReporter implements Reporter {
         try {
             TableName[] allTables = admin.listTableNames();
             List<DistributeTableWeight> tableWeights = new ArrayList<>();
-            Map<TableName, Map<ServerName, List<String>>> tableDistributions = holder.getTablesDistribution(admin.getConnection(), admin.getClusterStatus().getServers());
+            Map<TableName, Map<ServerName, List<String>>> tableDistributions = holder.getTablesDistribution(admin.getConnection(), ClusterMetricsProvider.getInstance(admin).getServers());
             for (TableName t : allTables) {
                 if (tableDistributions.get(t) == null) {
                     LOGGER.debug("Distribution of {} is unknown", t);
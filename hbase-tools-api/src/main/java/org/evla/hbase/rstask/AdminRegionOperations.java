@@ -0,0 +1,65 @@
+package org.evla.hbase.rstask;
+
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.ToolsThreads;
+
+import java.util.concurrent.*;
+
+/**
+ * Operations over the blocking Admin, every request in flight holds a thread of an own pool.
+ * Cheap with virtual threads, see {@link ToolsThreads}.
+ */
+class AdminRegionOperations extends BoundedRegionOperations {
+    private final Admin admin;
+    private final ExecutorService pool;
+
+    AdminRegionOperations(Admin admin, int maxInFlight) {
+        super(maxInFlight);
+        this.admin = admin;
+        this.pool = Executors.newCachedThreadPool(ToolsThreads.newThreadFactory("region-operation-%d", true));
+    }
+
+    @Override
+    public CompletableFuture<Void> flush(byte[] regionName) {
+        return call(() -> {
+            admin.flushRegion(regionName);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> majorCompact(byte[] regionName) {
+        return call(() -> {
+            admin.majorCompactRegion(regionName);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> move(byte[] encodedRegionName, ServerName destination) {
+        return call(() -> {
+            admin.move(encodedRegionName, destination);
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> call(Callable<T> request) {
+        return submit(() -> {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            pool.execute(() -> {
+                try {
+                    future.complete(request.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        });
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,64 @@
+package org.evla.hbase.rstask;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.AsyncAdmin;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Operations over AsyncAdmin of an own AsyncConnection: requests are not bound to threads, thousands of them
+ * can be in flight from a single caller thread.
+ */
+class AsyncRegionOperations extends BoundedRegionOperations {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRegionOperations.class);
+
+    private final AsyncConnection connection;
+    private final AsyncAdmin admin;
+
+    private AsyncRegionOperations(AsyncConnection connection, int maxInFlight) {
+        super(maxInFlight);
+        this.connection = connection;
+        this.admin = connection.getAdmin();
+    }
+
+    static AsyncRegionOperations create(Configuration configuration, int maxInFlight) throws IOException {
+        try {
+            AsyncRegionOperations operations = new AsyncRegionOperations(ConnectionFactory.createAsyncConnection(configuration).get(), maxInFlight);
+            LOGGER.info("Async admin is used, {} requests in flight at most", maxInFlight);
+            return operations;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> flush(byte[] regionName) {
+        return submit(() -> admin.flushRegion(regionName));
+    }
+
+    @Override
+    public CompletableFuture<Void> majorCompact(byte[] regionName) {
+        return submit(() -> admin.majorCompactRegion(regionName));
+    }
+
+    @Override
+    public CompletableFuture<Void> move(byte[] encodedRegionName, ServerName destination) {
+        return submit(() -> admin.move(encodedRegionName, destination));
+    }
+
+    @Override
+    public void close() throws IOException {
+        connection.close();
+    }
+}
@@ -0,0 +1,38 @@
+package org.evla.hbase.rstask;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of requests in flight of a backend.
+ */
+abstract class BoundedRegionOperations implements RegionOperations {
+    private final Semaphore inFlight;
+
+    BoundedRegionOperations(int maxInFlight) {
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+    }
+
+    /**
+     * Waits for a free slot and sends the request, the slot is released when the request is completed.
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = request.get();
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        return future.whenComplete((r, e) -> inFlight.release());
+    }
+}
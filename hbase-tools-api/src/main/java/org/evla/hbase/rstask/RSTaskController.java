@@ -1,7 +1,7 @@
 package org.evla.hbase.rstask;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.hbase.ServerName;
+import org.evla.hbase.ToolsThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,7 +20,7 @@ public class RSTaskController<T> {
 
     RSTaskController(ServerName serverName, int threads) {
         this.serverName = serverName;
-        this.service = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat(serverName.getHostAndPort() + "-%d").build());
+        this.service = Executors.newFixedThreadPool(threads, ToolsThreads.newThreadFactory(serverName.getHostAndPort() + "-%d", false));
     }
 
     public void processTasks() {
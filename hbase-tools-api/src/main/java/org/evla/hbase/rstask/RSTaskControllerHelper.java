@@ -9,11 +9,18 @@ import org.apache.hadoop.hbase.ipc.HBaseRpcController;
 import org.apache.hadoop.hbase.master.RegionState;
 import org.apache.hadoop.hbase.shaded.protobuf.RequestConverter;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 public class RSTaskControllerHelper {
@@ -22,7 +29,7 @@ public class RSTaskControllerHelper {
     public static <K> Map<ServerName, RSTaskController<K>> getControllers(Admin admin, int threads) {
         Map<ServerName, RSTaskController<K>> controllers = new HashMap<>();
         try {
-            admin.getClusterMetrics().getServersName().forEach(sn -> controllers.put(sn, new RSTaskController<>(sn, threads)));
+            ClusterMetricsProvider.getInstance(admin).getServers().forEach(sn -> controllers.put(sn, new RSTaskController<>(sn, threads)));
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
         }
@@ -83,13 +90,16 @@ public class RSTaskControllerHelper {
         }
     }
 
-    public static void waitUntilCompacting(Admin admin, HRegionInfo info, long statusDelay) throws IOException {
+    public static void waitUntilCompacting(Admin admin, RegionInfo info, long statusDelay) throws IOException {
+        waitUntilCompacting(admin, null, info, statusDelay);
+    }
+
+    public static void waitUntilCompacting(Admin admin, ServerName sn, RegionInfo info, long statusDelay) throws IOException {
         LOGGER.info("Wait while compacting region {}", info);
-        boolean isCompacting = RSTaskControllerHelper.isRegionCompacting(admin, info);
-        while (isCompacting) {
-            sleep(statusDelay);
-            isCompacting = RSTaskControllerHelper.isRegionCompacting(admin, info);
+        if (sn == null && !RSTaskControllerHelper.isRegionCompacting(admin, info)) {
+            return;
         }
+        await(RegionStateTracker.getInstance(admin).whenCompactionDone(sn, info, statusDelay));
     }
 
     public static void waitUntilCompacting(Admin admin, TableName tn, long statusDelay) throws IOException {
@@ -118,23 +128,64 @@ public class RSTaskControllerHelper {
         LOGGER.info("Wait for splitting table {}", tn);
         try {
             List<RegionInfo> regionInfoList = admin.getRegions(tn);
-            boolean isTransit = RSTaskControllerHelper.isRegionsInTransition(admin, regionInfoList);
-            while (isTransit) {
-                RSTaskControllerHelper.sleep(3_000);
-                isTransit = RSTaskControllerHelper.isRegionsInTransition(admin, regionInfoList);
-            }
+            await(RegionStateTracker.getInstance(admin).whenOutOfTransition(regionInfoList));
         } catch (Exception e) {
             LOGGER.error("Cant get info about table regions: " + tn, e);
         }
     }
 
+    public static void waitWhileInTransition(Admin admin, Collection<? extends RegionInfo> regions) throws IOException {
+        await(RegionStateTracker.getInstance(admin).whenOutOfTransition(regions));
+    }
+
+    /**
+     * @throws IOException when the regions are still in transition after the timeout
+     */
+    public static void waitWhileInTransition(Admin admin, Collection<? extends RegionInfo> regions, long timeoutMillis) throws IOException {
+        try {
+            await(RegionStateTracker.getInstance(admin).whenOutOfTransition(regions), timeoutMillis);
+        } catch (TimeoutException e) {
+            throw new IOException("Regions are still in transition after " + timeoutMillis + " ms: "
+                    + regions.stream().map(RegionInfo::getEncodedName).collect(Collectors.joining(", ")));
+        }
+    }
+
+    private static void await(CompletableFuture<Void> future) throws IOException {
+        try {
+            await(future, 0);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param timeoutMillis waits without a bound when not positive
+     */
+    private static void await(CompletableFuture<Void> future, long timeoutMillis) throws IOException, TimeoutException {
+        try {
+            if (timeoutMillis > 0) {
+                future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
     public static Map<String, RegionState> getRegionsInTransitionMap(ClusterMetrics metrics) {
         return metrics.getRegionStatesInTransition().stream().collect(Collectors.toMap(rs -> rs.getRegion().getEncodedName(), rs -> rs));
     }
 
     public static boolean isRegionsInTransition(Admin admin, List<RegionInfo> regions) throws IOException {
         try {
-            Map<String, RegionState> regionsInTransition = getRegionsInTransitionMap(admin.getClusterStatus());
+            Map<String, RegionState> regionsInTransition = getRegionsInTransitionMap(ClusterMetricsProvider.getInstance(admin).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.REGIONS_IN_TRANSITION), 0));
             for (RegionInfo info : regions) {
                 if (regionsInTransition.containsKey(info.getEncodedName())) {
                     return true;
@@ -184,14 +235,14 @@ public class RSTaskControllerHelper {
         }
     }
 
-    private static final Map<ServerName, HBaseRpcController> controllers = new HashMap<>();
+    private static final Map<ServerName, HBaseRpcController> controllers = new ConcurrentHashMap<>();
 
     private static HBaseRpcController getController(Admin admin, ServerName serverName) {
         controllers.computeIfAbsent(serverName, (sn) -> ((ClusterConnection) admin.getConnection()).getRpcControllerFactory().newController());
         return controllers.get(serverName);
     }
 
-    private static AdminProtos.GetRegionInfoResponse getRemoteRegionInfo(Admin admin, ServerName serverName, RegionInfo regionInfo) {
+    static AdminProtos.GetRegionInfoResponse getRemoteRegionInfo(Admin admin, ServerName serverName, RegionInfo regionInfo) {
         HBaseRpcController controller = getController(admin, serverName);
         AdminProtos.GetRegionInfoRequest request = RequestConverter.buildGetRegionInfoRequest(regionInfo.getRegionName(), true, true);
         try {
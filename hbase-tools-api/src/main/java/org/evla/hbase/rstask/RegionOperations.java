@@ -0,0 +1,32 @@
+package org.evla.hbase.rstask;
+
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.configuration.CommonSettings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Region level admin operations for bulk tools. Every operation returns immediately with a future, the number of
+ * requests in flight is bounded: a caller waits for a free slot when the bound is reached.
+ */
+public interface RegionOperations extends Closeable {
+
+    CompletableFuture<Void> flush(byte[] regionName);
+
+    CompletableFuture<Void> majorCompact(byte[] regionName);
+
+    CompletableFuture<Void> move(byte[] encodedRegionName, ServerName destination);
+
+    /**
+     * @return operations over AsyncAdmin when async.admin.enable is set, otherwise over the given Admin
+     */
+    static RegionOperations create(Admin admin, CommonSettings settings) throws IOException {
+        if (settings.isAsyncAdminEnable()) {
+            return AsyncRegionOperations.create(admin.getConfiguration(), settings.getAsyncAdminMaxInFlight());
+        }
+        return new AdminRegionOperations(admin, settings.getAsyncAdminMaxInFlight());
+    }
+}
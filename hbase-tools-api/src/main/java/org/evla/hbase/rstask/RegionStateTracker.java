@@ -0,0 +1,238 @@
+package org.evla.hbase.rstask;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.hbase.ClusterMetrics;
+import org.apache.hadoop.hbase.NotServingRegionException;
+import org.apache.hadoop.hbase.RegionMetrics;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.CompactionState;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.evla.hbase.ClusterMetricsProvider;
+import org.evla.hbase.ToolsThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared completion tracker, one per cluster connection. A single background poller fetches regions in transition
+ * once per tick for all waiters and checks compaction state of the awaited regions, so the number of requests
+ * depends on the poll rate and not on the number of waiting threads. Compaction state of regions with known server
+ * is read with one region metrics request per server for all its awaited regions.
+ * <p>
+ * Compaction state requests run on an own pool, at most one per server, so a slow RegionServer delays only its
+ * own waiters; a request running longer than {@link #REQUEST_TIMEOUT} is cancelled. Failed requests are repeated
+ * on the next check, a waiter fails after {@link #MAX_FAILURES} failed checks in a row.
+ */
+public class RegionStateTracker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegionStateTracker.class);
+    private static final long POLL_DELAY = 1_000;
+    private static final long REQUEST_TIMEOUT = 60_000;
+    private static final int MAX_FAILURES = 5;
+    private static final Map<Connection, RegionStateTracker> TRACKERS = new ConcurrentHashMap<>();
+
+    private final Admin admin;
+    private final ScheduledExecutorService poller;
+    private final ExecutorService requests;
+    // running compaction state requests by server name or encoded region name
+    private final Map<String, Request> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> transitionWaiters = new ConcurrentHashMap<>();
+    private final Map<String, CompactionWaiter> compactionWaiters = new ConcurrentHashMap<>();
+
+    private RegionStateTracker(Admin admin) {
+        this.admin = admin;
+        this.poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("region-state-tracker").build());
+        this.requests = Executors.newCachedThreadPool(ToolsThreads.newThreadFactory("region-state-request-%d", true));
+        this.poller.scheduleWithFixedDelay(this::poll, POLL_DELAY, POLL_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    public static RegionStateTracker getInstance(Admin admin) {
+        return TRACKERS.computeIfAbsent(admin.getConnection(), c -> new RegionStateTracker(admin));
+    }
+
+    public CompletableFuture<Void> whenOutOfTransition(RegionInfo info) {
+        return whenOutOfTransition(info.getEncodedName());
+    }
+
+    public CompletableFuture<Void> whenOutOfTransition(String encodedRegionName) {
+        return transitionWaiters.computeIfAbsent(encodedRegionName, k -> new CompletableFuture<>());
+    }
+
+    public CompletableFuture<Void> whenOutOfTransition(Collection<? extends RegionInfo> regions) {
+        return CompletableFuture.allOf(regions.stream().map(this::whenOutOfTransition).toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * @param sn       server hosting the region, when null the region location is resolved on every check,
+     *                 otherwise the region is checked together with other awaited regions of the server
+     * @param interval minimal delay between two checks of this region
+     */
+    public CompletableFuture<Void> whenCompactionDone(ServerName sn, RegionInfo info, long interval) {
+        return compactionWaiters.computeIfAbsent(info.getEncodedName(), k -> new CompactionWaiter(sn, info, interval)).future;
+    }
+
+    private void poll() {
+        try {
+            if (!transitionWaiters.isEmpty()) {
+                pollTransitions();
+            }
+            if (!compactionWaiters.isEmpty()) {
+                pollCompactions();
+            }
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    private void pollTransitions() {
+        Set<String> inTransition;
+        try {
+            inTransition = RSTaskControllerHelper.getRegionsInTransitionMap(ClusterMetricsProvider.getInstance(admin).getClusterMetrics(EnumSet.of(ClusterMetrics.Option.REGIONS_IN_TRANSITION), 0)).keySet();
+        } catch (IOException e) {
+            LOGGER.warn("Cant get regions in transition: {}", e.getMessage());
+            return;
+        }
+        transitionWaiters.forEach((region, future) -> {
+            if (!inTransition.contains(region)) {
+                transitionWaiters.remove(region, future);
+                future.complete(null);
+            }
+        });
+    }
+
+    private void pollCompactions() {
+        long now = System.currentTimeMillis();
+        Map<ServerName, List<CompactionWaiter>> byServer = new HashMap<>();
+        compactionWaiters.forEach((region, waiter) -> {
+            if (waiter.nextCheck > now) {
+                return;
+            }
+            waiter.nextCheck = now + waiter.interval;
+            ServerName sn = waiter.sn;
+            if (sn != null) {
+                byServer.computeIfAbsent(sn, k -> new ArrayList<>()).add(waiter);
+            } else {
+                submit(region, () -> pollRegionCompaction(waiter));
+            }
+        });
+        byServer.forEach((sn, waiters) -> submit(sn.getServerName(), () -> pollServerCompactions(sn, waiters)));
+    }
+
+    /**
+     * Runs the check unless a check with the same key is running, a check running longer than the timeout is
+     * cancelled and replaced.
+     */
+    private void submit(String key, Runnable check) {
+        long now = System.currentTimeMillis();
+        Request running = inFlight.get(key);
+        if (running != null) {
+            if (now - running.started < REQUEST_TIMEOUT) {
+                return;
+            }
+            LOGGER.warn("Region state request for {} is running {} ms, cancel it", key, now - running.started);
+            running.future.cancel(true);
+            inFlight.remove(key, running);
+        }
+        Request request = new Request(now);
+        inFlight.put(key, request);
+        request.future = requests.submit(() -> {
+            try {
+                check.run();
+            } finally {
+                inFlight.remove(key, request);
+            }
+        });
+    }
+
+    private void pollRegionCompaction(CompactionWaiter waiter) {
+        try {
+            if (!RSTaskControllerHelper.isRegionCompacting(admin, waiter.info)) {
+                complete(waiter, null);
+            } else {
+                waiter.failures.set(0);
+            }
+        } catch (NotServingRegionException e) {
+            // the location is resolved for every check, the region is gone
+            complete(waiter, e);
+        } catch (Exception e) {
+            retry(waiter, e);
+        }
+    }
+
+    /**
+     * Checks all awaited regions of the server with one region metrics request. A region absent in the response
+     * is not served by the server any more, its location is resolved on the next check.
+     */
+    private void pollServerCompactions(ServerName sn, List<CompactionWaiter> waiters) {
+        Map<String, CompactionState> states = new HashMap<>();
+        try {
+            Set<TableName> tables = new HashSet<>();
+            waiters.forEach(w -> tables.add(w.info.getTable()));
+            List<RegionMetrics> metrics = tables.size() == 1 ? admin.getRegionMetrics(sn, tables.iterator().next()) : admin.getRegionMetrics(sn);
+            metrics.forEach(rm -> states.put(RegionInfo.encodeRegionName(rm.getRegionName()), rm.getCompactionState()));
+        } catch (IOException e) {
+            LOGGER.warn("Cant get region metrics of {}, {} regions are checked again later: {}", sn, waiters.size(), e.getMessage());
+            waiters.forEach(w -> retry(w, e));
+            return;
+        }
+        for (CompactionWaiter waiter : waiters) {
+            CompactionState state = states.get(waiter.info.getEncodedName());
+            if (state == null) {
+                LOGGER.debug("Region {} is not online on {}, its location is resolved on the next check", waiter.info.getEncodedName(), sn);
+                waiter.sn = null;
+            } else if (state == CompactionState.NONE || state == CompactionState.MINOR) {
+                complete(waiter, null);
+            } else {
+                waiter.failures.set(0);
+            }
+        }
+    }
+
+    private void retry(CompactionWaiter waiter, Exception e) {
+        if (waiter.failures.incrementAndGet() >= MAX_FAILURES) {
+            complete(waiter, e);
+        }
+    }
+
+    private void complete(CompactionWaiter waiter, Exception e) {
+        compactionWaiters.remove(waiter.info.getEncodedName(), waiter);
+        if (e == null) {
+            waiter.future.complete(null);
+        } else {
+            waiter.future.completeExceptionally(e);
+        }
+    }
+
+    private static final class Request {
+        private final long started;
+        private volatile Future<?> future;
+
+        private Request(long started) {
+            this.started = started;
+        }
+    }
+
+    private static final class CompactionWaiter {
+        private final RegionInfo info;
+        private final long interval;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile ServerName sn;
+        private volatile long nextCheck;
+        // failed checks in a row
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private CompactionWaiter(ServerName sn, RegionInfo info, long interval) {
+            this.sn = sn;
+            this.info = info;
+            this.interval = interval;
+            // a region with known server is checked on the next poll, it replaces the initial direct check
+            this.nextCheck = sn == null ? System.currentTimeMillis() + interval : 0;
+        }
+    }
+}
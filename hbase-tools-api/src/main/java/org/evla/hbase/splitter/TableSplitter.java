@@ -4,9 +4,11 @@ import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.rstask.RSTaskControllerHelper;
 import org.evla.hbase.compactor.LightweightCompactor;
 import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.evla.hbase.meta.MetaTableHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.evla.hbase.distributor.Distributor;
@@ -38,7 +40,8 @@ public class TableSplitter {
 
     public void splitTable(String tableName, int newSize) {
         TableName tn = TableName.valueOf(tableName);
-        Distributor distributor = new Distributor(admin, settings);
+        MetaTableHolder holder = new MetaTableHolder();
+        Distributor distributor = new Distributor(admin, settings, holder);
         List<HRegionLocation> regions = new ArrayList<>();
         LightweightCompactor compactor = null;
         try {
@@ -64,7 +67,7 @@ public class TableSplitter {
                 }
                 if (!regions.isEmpty()) {
                     if (compactor == null) {
-                        compactor = new LightweightCompactor(admin, settings);
+                        compactor = new LightweightCompactor(admin, settings, holder);
                     }
                     compactor.compactRegions(new ArrayList<>(regions));
                     RSTaskControllerHelper.waitUntilCompacting_checked(admin, tn, 3_000);
@@ -156,7 +159,7 @@ public class TableSplitter {
             for (HRegionLocation regionInfo : tableRegionInfos) {
                 tableRegions.add(regionInfo.getRegion().getRegionName());
             }
-            ClusterMetrics status = admin.getClusterMetrics();
+            ClusterMetrics status = ClusterMetricsProvider.getInstance(admin).getClusterMetrics();
             for (ServerName serverName : status.getServersName()) {
                 ServerMetrics serverMetrics = status.getLiveServerMetrics().get(serverName);
                 for (RegionMetrics regionMetrics : serverMetrics.getRegionMetrics().values()) {
@@ -32,6 +32,14 @@ public class FlushTask extends RSTask<Void> implements Comparable<FlushTask> {
         return null;
     }
 
+    public byte[] getRegionName() {
+        return regionName;
+    }
+
+    public int getMemStoreSize() {
+        return memStoreSize;
+    }
+
     @Override
     public int compareTo(FlushTask o) {
         return Long.compare(memStoreSize, o.memStoreSize);
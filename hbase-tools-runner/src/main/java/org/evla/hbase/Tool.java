@@ -4,6 +4,7 @@ import org.apache.hadoop.hbase.client.Admin;
 import org.evla.hbase.analyze.TableAnalyzeRunner;
 import org.evla.hbase.common.*;
 import org.evla.hbase.compactor.CompactorRunner;
+import org.evla.hbase.compactor.CompactorSimulatorRunner;
 import org.evla.hbase.configuration.HBaseToolsSettings;
 import org.evla.hbase.distributor.DistributorRunner;
 import org.evla.hbase.flusher.FlusherRunner;
@@ -38,6 +39,43 @@ public enum Tool {
                     "\n" +
                     "\t\tRun controlled compactions for specified namespace|table.";
         }
+
+        @Override
+        public boolean isCompactionHistoryRequired() {
+            return true;
+        }
+    },
+    COMPACTOR_SIMULATOR {
+        @Override
+        public HBaseToolRunner getRunnerForTool() {
+            return new CompactorSimulatorRunner();
+        }
+
+        @Override
+        public String getToolDescription() {
+            return this.name() + " - tool for recording region metrics and replaying them through compactor settings.";
+        }
+
+        @Override
+        public String getToolUsageString() {
+            return "Usage:" +
+                    "\tcompactor_simulator record <file> [interval seconds] [count]" +
+                    "\n" +
+                    "\t\tAppend region metrics snapshots of the cluster to the file (default: 12 snapshots every 300 seconds)." +
+                    "\n" +
+                    "\tcompactor_simulator simulate <file> [hours] [MB/s]" +
+                    "\n" +
+                    "\t\tReplay the recorded snapshots through current compactor settings with simulated time and print projected compactions. Cluster is not required." +
+                    "\n" +
+                    "\tcompactor_simulator benchmark [regions] [model,...]" +
+                    "\n" +
+                    "\t\tRank synthetic regions (default: 500000) with weight models (default: default,multi-factor) and print CPU cost and ranking quality. Cluster is not required.";
+        }
+
+        @Override
+        public boolean isClusterRequired(String... args) {
+            return args == null || !("simulate".equalsIgnoreCase(args[0]) || "benchmark".equalsIgnoreCase(args[0]));
+        }
     },
     FLUSHER {
         @Override
@@ -82,6 +120,11 @@ public enum Tool {
                     "\n" +
                     "\t\tRun 'merge' for given table. Merge regions till specified regions number or while HFile size less than HConstants#HREGION_MAX_FILESIZE";
         }
+
+        @Override
+        public boolean isCompactionHistoryRequired() {
+            return true;
+        }
     },
     DISTRIBUTOR {
         @Override
@@ -109,6 +152,11 @@ public enum Tool {
                     "\n" +
                     "\t\tIn case of second parameter is 'mask' - run distributor for all objects of given regexp.";
         }
+
+        @Override
+        public boolean isCompactionHistoryRequired() {
+            return true;
+        }
     },
     SPLITTER {
         @Override
@@ -128,6 +176,11 @@ public enum Tool {
                     "\n" +
                     "\t\tRun 'splitter' for given table. Split table till specified regions number.";
         }
+
+        @Override
+        public boolean isCompactionHistoryRequired() {
+            return true;
+        }
     },
     KEY_GENERATOR {
         @Override
@@ -296,7 +349,16 @@ public enum Tool {
         @Override
         public String getToolUsageString() {
             return "Unstable tool!\n" +
-                    "Usage:";
+                    "Usage:" +
+                    "\n" +
+                    "\tmeta benchmark [readers] [regions] [seconds per step]" +
+                    "\n" +
+                    "\t\tMeasure read throughput of the in-memory hbase:meta snapshot with concurrent readers (default: 64 readers, 500000 regions, 10 seconds). Cluster is not required.";
+        }
+
+        @Override
+        public boolean isClusterRequired(String... args) {
+            return args == null || !"benchmark".equalsIgnoreCase(args[0]);
         }
     },
     COMPACTION_CLEANER {
@@ -325,6 +387,17 @@ public enum Tool {
 
     public abstract String getToolUsageString();
 
+    public boolean isClusterRequired(String... args) {
+        return true;
+    }
+
+    /**
+     * @return true for tools running compactions, the compaction history is loaded and saved only for them
+     */
+    public boolean isCompactionHistoryRequired() {
+        return false;
+    }
+
     public void run(Admin admin, HBaseToolsSettings settings, String... args) {
         getRunnerForTool().run(admin, settings, args);
     }
@@ -1,7 +1,10 @@
 package org.evla.hbase;
 
 import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.compactor.CompactionHistory;
+import org.evla.hbase.compactor.CompactionWeight;
 import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.evla.hbase.meta.SnapshotCache;
 
 import java.io.FileReader;
 import java.io.IOException;
@@ -37,8 +40,15 @@ public class ToolsRunner {
             }
             HBaseToolsSettings settings = new HBaseToolsSettings(properties);
             StaticConnector.configure(settings);
+            SnapshotCache.configure(settings);
+            ClusterMetricsProvider.configure(settings);
+            CompactionWeight.configure(settings);
+            if (tool.isCompactionHistoryRequired()) {
+                CompactionHistory.configure(settings);
+            }
+            ToolsThreads.configure(settings);
 
-            Admin admin = StaticConnector.getAdmin();
+            Admin admin = tool.isClusterRequired(toolArguments) ? StaticConnector.getAdmin() : null;
             tool.run(admin, settings, toolArguments);
         }
     }
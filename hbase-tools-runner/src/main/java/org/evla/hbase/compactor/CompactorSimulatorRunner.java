@@ -0,0 +1,53 @@
+package org.evla.hbase.compactor;
+
+import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.HBaseToolRunner;
+import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class CompactorSimulatorRunner implements HBaseToolRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactorSimulatorRunner.class);
+    private static final double DEFAULT_SPEED = 50;
+    private static final int DEFAULT_BENCHMARK_REGIONS = 500_000;
+
+    @Override
+    public void run(Admin admin, HBaseToolsSettings settings, String... args) {
+        if (args == null || args.length < 1) {
+            throw new IllegalArgumentException("Incorrect input");
+        }
+        if ("benchmark".equalsIgnoreCase(args[0])) {
+            int regions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BENCHMARK_REGIONS;
+            List<String> models = args.length > 2 ? Arrays.asList(args[2].split(","))
+                    : Arrays.asList(CompactionWeightModel.DEFAULT, CompactionWeightModel.MULTI_FACTOR);
+            System.out.println(new CompactionWeightBenchmark(regions).run(models));
+            return;
+        }
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Incorrect input");
+        }
+        try {
+            if ("record".equalsIgnoreCase(args[0])) {
+                long interval = args.length > 2 ? TimeUnit.SECONDS.toMillis(Long.parseLong(args[2])) : TimeUnit.MINUTES.toMillis(5);
+                int count = args.length > 3 ? Integer.parseInt(args[3]) : 12;
+                ClusterMetricsRecording.record(admin, Paths.get(args[1]), interval, count);
+            } else if ("simulate".equalsIgnoreCase(args[0])) {
+                CompactionSimulator simulator = new CompactionSimulator(settings.getCompactorSettings(), ClusterMetricsRecording.read(Paths.get(args[1])),
+                        args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_SPEED);
+                long duration = args.length > 2 ? TimeUnit.HOURS.toMillis(Long.parseLong(args[2])) : simulator.getRecordedSpan();
+                System.out.println(simulator.run(duration));
+            } else {
+                throw new IllegalArgumentException("Unknown mode: " + args[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+}
@@ -1,31 +1,34 @@
 package org.evla.hbase.meta;
 
-import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.ServerName;
-import org.apache.hadoop.hbase.UnknownRegionException;
 import org.apache.hadoop.hbase.client.Admin;
+import org.evla.hbase.ClusterMetricsProvider;
 import org.evla.hbase.HBaseToolRunner;
 import org.evla.hbase.HBaseToolsHelper;
-import org.evla.hbase.rstask.RSTaskControllerHelper;
 import org.evla.hbase.configuration.HBaseToolsSettings;
+import org.evla.hbase.rstask.RegionOperations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class MetaRunner implements HBaseToolRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(MetaRunner.class);
+    private static final int DEFAULT_BENCHMARK_READERS = 64;
+    private static final int DEFAULT_BENCHMARK_REGIONS = 500_000;
+    private static final long DEFAULT_BENCHMARK_SECONDS = 10;
 
     @Override
     public void run(Admin admin, HBaseToolsSettings settings, String... args) {
-        TechnicalMeta technicalMeta = new TechnicalMeta(admin, settings);
-
         if (args == null || args.length == 0) {
             throw new IllegalArgumentException("Incorrect input parameters");
         }
+        if ("benchmark".equalsIgnoreCase(args[0])) {
+            runBenchmark(args);
+            return;
+        }
+        TechnicalMeta technicalMeta = new TechnicalMeta(admin, settings);
 
         String parameter = args[0];
 
@@ -54,25 +57,10 @@ public class MetaRunner implements HBaseToolRunner {
                 ClusterTopology oldTopology = technicalMeta.getTopology(time);
                 LOGGER.info("Topology size at {}: {}", time, oldTopology.getAllRegionsCount());
 
-                try {
-                    Collection<ServerName> servers = admin.getClusterStatus().getServers();
-                    servers.forEach(serverName -> {
-                        LOGGER.info("Start restoring Region Server: {}", serverName);
-                        Difference diff = technicalMeta.getRegionsDiff(currentTopology, oldTopology, serverName);
-                        diff.getDifference().forEach(r -> {
-                            try {
-                                if (r.getType() == DiffType.OUT) {
-                                    String encodedRegionName = HRegionInfo.encodeRegionName(r.getRecord().getBytes(StandardCharsets.UTF_8));
-                                    admin.move(encodedRegionName.getBytes(StandardCharsets.UTF_8), serverName);
-                                    LOGGER.info("Move region {} to Region Server {}", encodedRegionName, serverName);
-                                    RSTaskControllerHelper.sleep(250);
-                                }
-                            } catch (Exception e) {
-                                LOGGER.error(e.getMessage(), e);
-                            }
-                        });
-                        LOGGER.info("Restoring Region Server {} is completed", serverName);
-                    });
+                try (RegionOperations operations = RegionOperations.create(admin, settings.getCommonSettings())) {
+                    Collection<ServerName> servers = ClusterMetricsProvider.getInstance(admin).getServers();
+                    RegionRestorer restorer = new RegionRestorer(admin, operations, settings.getTechnicalMetaSettings());
+                    restorer.restore(restorer.plan(currentTopology, oldTopology, servers));
                 } catch (IOException e) {
                     LOGGER.error(e.getMessage(), e);
                 }
@@ -86,26 +74,13 @@ public class MetaRunner implements HBaseToolRunner {
                 ServerName serverName = parsedServerName;
                 ClusterTopology oldTopology = technicalMeta.getTopology(time);
                 LOGGER.info("Topology size at {}: {}\nServers:\n{}", time, oldTopology.getAllRegionsCount(), String.join("\n", oldTopology.getAllServers()));
-                Difference diff = technicalMeta.getRegionsDiff(currentTopology, oldTopology, serverName);
-
-                AtomicInteger counter = new AtomicInteger(0);
-                diff.getDifference().forEach(r -> {
-                    String encodedRegionName = HRegionInfo.encodeRegionName(r.getRecord().getBytes(StandardCharsets.UTF_8));
-                    try {
-                        if (r.getType() == DiffType.OUT) {
-                            LOGGER.info("Trying to move region {} to Region Server {}", encodedRegionName, serverName);
-                            admin.move(encodedRegionName.getBytes(StandardCharsets.UTF_8), serverName);
-                            LOGGER.info("Region {} moved to Region Server {}", encodedRegionName, serverName);
-                            counter.incrementAndGet();
-                            RSTaskControllerHelper.sleep(250);
-                        }
-                    } catch (UnknownRegionException e) {
-                        LOGGER.error("Unknown region: {}, {}", encodedRegionName, e.getMessage());
-                    } catch (Exception e) {
-                        LOGGER.error(e.getMessage(), e);
-                    }
-                });
-                LOGGER.info("{} regions returned to {}", counter.get(), serverName);
+                try (RegionOperations operations = RegionOperations.create(admin, settings.getCommonSettings())) {
+                    RegionRestorer restorer = new RegionRestorer(admin, operations, settings.getTechnicalMetaSettings());
+                    int moved = restorer.restore(restorer.plan(currentTopology, oldTopology, Collections.singletonList(serverName)));
+                    LOGGER.info("{} regions returned to {}", moved, serverName);
+                } catch (IOException e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
                 break;
             }
             case "diff": {
@@ -123,6 +98,11 @@ public class MetaRunner implements HBaseToolRunner {
                 }
                 break;
             }
+            case "migrate": {
+                LOGGER.info("Start migrating stored topologies to blob storage");
+                technicalMeta.migrateToBlobStorage();
+                break;
+            }
 
             default: {
                 throw new RuntimeException("Incorrect input parameter");
@@ -130,4 +110,15 @@ public class MetaRunner implements HBaseToolRunner {
         }
     }
 
+    private void runBenchmark(String... args) {
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BENCHMARK_READERS;
+        int regions = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BENCHMARK_REGIONS;
+        long seconds = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_BENCHMARK_SECONDS;
+        try {
+            System.out.println(new MetaReadBenchmark(regions).run(readers, seconds));
+        } catch (InterruptedException e) {
+            LOGGER.error(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        }
+    }
 }